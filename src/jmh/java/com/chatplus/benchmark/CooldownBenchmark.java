@@ -0,0 +1,104 @@
+package com.chatplus.benchmark;
+
+import com.chatplus.config.BenchmarkConfigs;
+import com.chatplus.config.CooldownRules;
+import com.chatplus.state.Hashing;
+import com.chatplus.state.PlayerStateTable;
+import com.chatplus.state.SimHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * CooldownManager bookkeeping: rule resolution from the shipped cooldowns.yml and
+ * the per-player state table with many tracked players.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CooldownBenchmark {
+    
+    private static final String[] GROUPS = {"default", "vip", "premium", "staff", "builder"};
+    private static final String[] WORLDS = {"world", "spawn", "pvp", "creative", "world_nether"};
+    
+    @Param({"100", "10000"})
+    public int players;
+    
+    private CooldownRules rules;
+    private PlayerStateTable table;
+    private UUID[] ids;
+    private long[] hashes;
+    private long[] fingerprints;
+    private String[] messages;
+    private int cursor;
+    private long now;
+    
+    @Setup
+    public void setup() {
+        rules = CooldownRules.compile(BenchmarkConfigs.snapshot(Corpus.blacklist(4), Corpus.emojis(50), false),
+            Logger.getLogger("ChatPlusBenchmark"));
+        table = new PlayerStateTable();
+        
+        Random random = new Random(7);
+        ids = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            table.record(ids[i], 0, 0, 0);
+        }
+        
+        messages = Corpus.messages(Corpus.blacklist(4), Corpus.emojis(50));
+        hashes = new long[messages.length];
+        fingerprints = new long[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            hashes[i] = Hashing.hash64(messages[i]);
+            fingerprints[i] = SimHash.fingerprint(messages[i]);
+        }
+        now = System.currentTimeMillis();
+    }
+    
+    @Benchmark
+    public boolean tryAcquire() {
+        int i = cursor++;
+        now += 50;
+        return table.tryAcquire(ids[i % players], now, 3000, false);
+    }
+    
+    @Benchmark
+    public long resolve() {
+        int i = cursor++;
+        return rules.resolve(GROUPS[i % GROUPS.length], WORLDS[(i >>> 3) % WORLDS.length], now + i);
+    }
+    
+    @Benchmark
+    public long resolveLength() {
+        return rules.resolveLength(cursor++ & 255, 3);
+    }
+    
+    @Benchmark
+    public boolean duplicateCheck() {
+        int i = cursor++;
+        return table.isLastMessage(ids[i % players], hashes[i & (Corpus.MESSAGES - 1)], 0);
+    }
+    
+    @Benchmark
+    public long fingerprint() {
+        return SimHash.fingerprint(messages[cursor++ & (Corpus.MESSAGES - 1)]);
+    }
+    
+    @Benchmark
+    public boolean nearDuplicateCheck() {
+        int i = cursor++;
+        return table.isNearDuplicate(ids[i % players], fingerprints[i & (Corpus.MESSAGES - 1)],
+            PlayerStateTable.HISTORY, 6, 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.chatplus.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic message corpora, blacklists and emoji lists. Messages mix plain
+ * chat with blacklisted words, obfuscated variants, emoji codes, caps and spam.
+ */
+final class Corpus {
+    
+    static final int MESSAGES = 4096;
+    
+    private static final String[] VOCABULARY = {
+        "hello", "hi", "gg", "anyone", "want", "to", "trade", "diamonds", "for", "iron",
+        "where", "is", "the", "spawn", "shop", "lol", "nice", "build", "can", "i",
+        "join", "your", "team", "who", "has", "a", "spare", "pickaxe", "thanks", "brb",
+        "afk", "back", "server", "lag", "today", "wow", "that", "was", "close", "run",
+        "nether", "portal", "farm", "villager", "emeralds", "please", "help", "me", "with", "this",
+        "base", "raid", "tonight", "ok", "sure", "no", "yes", "maybe", "later", "bye"
+    };
+    
+    private static final String LEET_FROM = "aeiost";
+    private static final String LEET_TO = "43105+";
+    
+    private Corpus() {
+    }
+    
+    static List<String> blacklist(int size) {
+        Random random = new Random(size);
+        List<String> words = new ArrayList<>(List.of("badword1", "badword2", "spam", "example"));
+        while (words.size() < size) {
+            words.add(randomWord(random, 4 + random.nextInt(6)));
+        }
+        return words.subList(0, size);
+    }
+    
+    static Map<String, String> emojis(int size) {
+        Random random = new Random(size * 31L);
+        Map<String, String> emojis = new LinkedHashMap<>();
+        emojis.put(":)", "\u263A");
+        emojis.put(":(", "\u2639");
+        emojis.put("<3", "\u2764");
+        while (emojis.size() < size) {
+            String name = randomWord(random, 3 + random.nextInt(8));
+            emojis.put(":" + name + ":", new String(Character.toChars(0x1F600 + random.nextInt(80))));
+        }
+        return emojis;
+    }
+    
+    static String[] messages(List<String> blacklist, Map<String, String> emojis) {
+        Random random = new Random(42);
+        List<String> codes = new ArrayList<>(emojis.keySet());
+        String[] messages = new String[MESSAGES];
+        
+        for (int i = 0; i < messages.length; i++) {
+            int words = 2 + random.nextInt(16);
+            StringBuilder message = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    message.append(' ');
+                }
+                
+                int roll = random.nextInt(100);
+                if (roll < 4) {
+                    message.append(blacklist.get(random.nextInt(blacklist.size())));
+                } else if (roll < 6) {
+                    message.append(obfuscate(blacklist.get(random.nextInt(blacklist.size())), random));
+                } else if (roll < 14) {
+                    message.append(codes.get(random.nextInt(codes.size())));
+                } else {
+                    message.append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                }
+            }
+            
+            int style = random.nextInt(100);
+            if (style < 5) {
+                messages[i] = message.toString().toUpperCase();
+            } else if (style < 8) {
+                messages[i] = message.append("!!!!!!").toString();
+            } else {
+                messages[i] = message.toString();
+            }
+        }
+        return messages;
+    }
+    
+    private static String obfuscate(String word, Random random) {
+        StringBuilder result = new StringBuilder(word.length() * 2);
+        boolean pad = random.nextBoolean();
+        for (int i = 0; i < word.length(); i++) {
+            if (pad && i > 0) {
+                result.append('.');
+            }
+            char c = word.charAt(i);
+            int index = LEET_FROM.indexOf(c);
+            result.append(index >= 0 && !pad ? LEET_TO.charAt(index) : c);
+        }
+        return result.toString();
+    }
+    
+    private static String randomWord(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.chatplus.benchmark;
+
+import com.chatplus.emoji.EmojiTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmojiManager replacement over emoji lists from the shipped size up to thousands of codes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmojiBenchmark {
+    
+    @Param({"50", "1000", "10000"})
+    public int emojiCount;
+    
+    @Param({"false", "true"})
+    public boolean wordBoundary;
+    
+    private EmojiTrie trie;
+    private String[] messages;
+    private int cursor;
+    
+    @Setup
+    public void setup() {
+        Map<String, String> emojis = Corpus.emojis(emojiCount);
+        trie = EmojiTrie.compile(emojis, List.of());
+        messages = Corpus.messages(Corpus.blacklist(4), emojis);
+    }
+    
+    private String next() {
+        return messages[cursor++ & (Corpus.MESSAGES - 1)];
+    }
+    
+    @Benchmark
+    public String replace() {
+        return trie.replace(next(), wordBoundary);
+    }
+    
+    @Benchmark
+    public boolean containsCode() {
+        return trie.containsCode(next(), wordBoundary);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.chatplus.benchmark;
+
+import com.chatplus.config.BenchmarkConfigs;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.filter.BlacklistAutomaton;
+import com.chatplus.filter.FilterVerdict;
+import com.chatplus.filter.MessageScanner;
+import com.chatplus.filter.TextNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The FilterManager hot path: the fused caps/repeat/blacklist scan and the
+ * blacklist replacement, from a handful of words up to very large lists.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterBenchmark {
+    
+    @Param({"4", "500", "20000"})
+    public int blacklistSize;
+    
+    @Param({"false", "true"})
+    public boolean checkVariations;
+    
+    private MessageScanner scanner;
+    private String[] messages;
+    private int cursor;
+    
+    @Setup
+    public void setup() {
+        List<String> blacklist = Corpus.blacklist(blacklistSize);
+        ConfigSnapshot config = BenchmarkConfigs.snapshot(blacklist, Corpus.emojis(50), checkVariations);
+        scanner = compileScanner(config);
+        messages = Corpus.messages(blacklist, config.getEmojiMappings());
+    }
+    
+    // Mirrors FilterManager.compileScanner with the default asterisk replacement
+    static MessageScanner compileScanner(ConfigSnapshot config) {
+        TextNormalizer normalizer = null;
+        if (config.isCheckVariations()) {
+            normalizer = new TextNormalizer(
+                config.isNormalizeLeetspeak(),
+                config.isNormalizeHomoglyphs(),
+                config.isStripInvisibleChars(),
+                config.isCollapsePadding(),
+                config.getPaddingChars());
+        }
+        
+        BlacklistAutomaton blacklist = BlacklistAutomaton.compile(config.getBlacklistWords(), normalizer,
+            word -> "*".repeat(word.length()));
+        return new MessageScanner(blacklist, normalizer,
+            config.getMaxRepeatedChars(),
+            config.getMaxCapsRatio(),
+            config.getMinCapsLength());
+    }
+    
+    static String replaceProfanity(MessageScanner scanner, String message) {
+        TextNormalizer normalizer = scanner.getNormalizer();
+        if (normalizer != null) {
+            return scanner.getBlacklist().replace(message, normalizer.normalize(message));
+        }
+        return scanner.getBlacklist().replace(message);
+    }
+    
+    private String next() {
+        return messages[cursor++ & (Corpus.MESSAGES - 1)];
+    }
+    
+    @Benchmark
+    public FilterVerdict scan() {
+        return scanner.scan(next(), true);
+    }
+    
+    @Benchmark
+    public String replace() {
+        return replaceProfanity(scanner, next());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.chatplus.benchmark;
+
+import com.chatplus.config.BenchmarkConfigs;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.config.CooldownRules;
+import com.chatplus.emoji.EmojiTrie;
+import com.chatplus.filter.MessageScanner;
+import com.chatplus.state.Hashing;
+import com.chatplus.state.PlayerStateTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The work ChatListener.onPlayerChat does per message, in the same order: filter
+ * scan, duplicate check, cooldown acquire, profanity replacement and emojis.
+ * Bukkit calls (permissions, events, sending) need a running server and are left out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipelineBenchmark {
+    
+    @Param({"small", "large"})
+    public String config;
+    
+    private MessageScanner scanner;
+    private EmojiTrie emojis;
+    private CooldownRules rules;
+    private PlayerStateTable table;
+    private boolean wordBoundary;
+    private UUID[] ids;
+    private String[] messages;
+    private int cursor;
+    private long now;
+    
+    @Setup
+    public void setup() {
+        boolean large = config.equals("large");
+        List<String> blacklist = Corpus.blacklist(large ? 20000 : 4);
+        Map<String, String> emojiMappings = Corpus.emojis(large ? 10000 : 50);
+        ConfigSnapshot snapshot = BenchmarkConfigs.snapshot(blacklist, emojiMappings, large);
+        
+        scanner = FilterBenchmark.compileScanner(snapshot);
+        emojis = EmojiTrie.compile(snapshot.getEmojiMappings(), snapshot.getEmojiReplacementOrder());
+        rules = CooldownRules.compile(snapshot, Logger.getLogger("ChatPlusBenchmark"));
+        wordBoundary = snapshot.isWordBoundaryEnabled();
+        table = new PlayerStateTable();
+        messages = Corpus.messages(blacklist, emojiMappings);
+        
+        Random random = new Random(11);
+        ids = new UUID[200];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        now = System.currentTimeMillis();
+    }
+    
+    @Benchmark
+    public String onPlayerChat() {
+        int i = cursor++;
+        String message = messages[i & (Corpus.MESSAGES - 1)];
+        UUID id = ids[i % ids.length];
+        now += 25;
+        
+        if (scanner.scan(message, false).isFiltered()) {
+            return null;
+        }
+        
+        long hash = Hashing.hash64(message);
+        if (table.isLastMessage(id, hash, now - 60_000)) {
+            return null;
+        }
+        
+        long cooldown = rules.resolve("default", "world", now) * 1000L;
+        if (!table.tryAcquire(id, now, cooldown, false)) {
+            return null;
+        }
+        
+        String processed = FilterBenchmark.replaceProfanity(scanner, message);
+        table.record(id, now, hash, 0);
+        return emojis.replace(processed, wordBoundary);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.chatplus.config;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds config snapshots for the benchmarks from the shipped YAML files, with the
+ * blacklist and emoji mappings swapped for generated ones of the requested size.
+ */
+public final class BenchmarkConfigs {
+    
+    private BenchmarkConfigs() {
+    }
+    
+    public static ConfigSnapshot snapshot(List<String> blacklist, Map<String, String> emojis, boolean checkVariations) {
+        FileConfiguration config = load("config.yml");
+        config.set("filters.enabled", true);
+        config.set("filters.blacklist.words", blacklist);
+        config.set("filters.blacklist.action", "replace");
+        
+        FileConfiguration emojiConfig = load("emojis.yml");
+        emojiConfig.set("mappings", null);
+        emojiConfig.createSection("mappings", emojis);
+        emojiConfig.set("replacement-order", null);
+        
+        FileConfiguration filters = load("filters.yml");
+        filters.set("profanity-filter.detection.check-variations", checkVariations);
+        
+        return new ConfigSnapshot(1, config, load("cooldowns.yml"), emojiConfig, load("messages.yml"), filters);
+    }
+    
+    private static FileConfiguration load(String name) {
+        InputStream stream = BenchmarkConfigs.class.getClassLoader().getResourceAsStream(name);
+        if (stream == null) {
+            throw new IllegalStateException("Missing resource " + name);
+        }
+        return YamlConfiguration.loadConfiguration(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+}
\ No newline at end of file
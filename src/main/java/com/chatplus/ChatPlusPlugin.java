@@ -1,16 +1,30 @@
 package com.chatplus;
 
+import com.chatplus.chat.BuiltinStages;
+import com.chatplus.chat.ChatPipeline;
 import com.chatplus.commands.ChatPlusCommand;
 import com.chatplus.config.ConfigManager;
 import com.chatplus.integrations.PlaceholderAPIIntegration;
 import com.chatplus.listeners.ChatListener;
+import com.chatplus.listeners.PaperChatListener;
+import com.chatplus.listeners.PlayerListener;
 import com.chatplus.managers.ChatToggleManager;
+import com.chatplus.managers.ConfigWatchManager;
 import com.chatplus.managers.CooldownManager;
 import com.chatplus.managers.EmojiManager;
 import com.chatplus.managers.FilterManager;
+import com.chatplus.managers.FloodManager;
+import com.chatplus.managers.GroupCacheManager;
+import com.chatplus.managers.ModerationLogManager;
+import com.chatplus.managers.PermissionCacheManager;
+import com.chatplus.managers.PersistenceManager;
+import com.chatplus.managers.SyncManager;
+import com.chatplus.metrics.ChatMetrics;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.Collection;
+
 public class ChatPlusPlugin extends JavaPlugin {
     
     private ConfigManager configManager;
@@ -18,6 +32,15 @@ public class ChatPlusPlugin extends JavaPlugin {
     private EmojiManager emojiManager;
     private FilterManager filterManager;
     private ChatToggleManager chatToggleManager;
+    private GroupCacheManager groupCacheManager;
+    private PermissionCacheManager permissionCacheManager;
+    private FloodManager floodManager;
+    private PersistenceManager persistenceManager;
+    private SyncManager syncManager;
+    private ModerationLogManager moderationLogManager;
+    private ConfigWatchManager configWatchManager;
+    private ChatPipeline chatPipeline;
+    private final ChatMetrics chatMetrics = new ChatMetrics();
     private PlaceholderAPIIntegration placeholderIntegration;
     
     @Override
@@ -28,9 +51,31 @@ public class ChatPlusPlugin extends JavaPlugin {
         this.emojiManager = new EmojiManager(this);
         this.filterManager = new FilterManager(this);
         this.chatToggleManager = new ChatToggleManager(this);
+        this.groupCacheManager = new GroupCacheManager(this);
+        this.permissionCacheManager = new PermissionCacheManager(this);
+        this.floodManager = new FloodManager(this);
+        // Restores cooldown, duplicate and mute state from the last run
+        this.persistenceManager = new PersistenceManager(this);
+        // Shares cooldowns, mutes and flood blocks with other servers
+        this.syncManager = new SyncManager(this);
+        this.moderationLogManager = new ModerationLogManager(this);
+        
+        // Build the chat pipeline; other plugins can add stages through getChatPipeline()
+        this.chatPipeline = new ChatPipeline();
+        BuiltinStages.registerAll(this, chatPipeline);
+        configurePipeline();
+        
+        // Reloads YAML files as they are saved
+        this.configWatchManager = new ConfigWatchManager(this);
         
         // Register listeners
-        getServer().getPluginManager().registerEvents(new ChatListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
+        if (configManager.isAsyncChatEnabled() && isPaperChatSupported()) {
+            getServer().getPluginManager().registerEvents(new PaperChatListener(this), this);
+            getLogger().info("Using Paper's async chat API");
+        } else {
+            getServer().getPluginManager().registerEvents(new ChatListener(this), this);
+        }
         
         // Register commands
         ChatPlusCommand commandExecutor = new ChatPlusCommand(this);
@@ -54,10 +99,31 @@ public class ChatPlusPlugin extends JavaPlugin {
     
     @Override
     public void onDisable() {
+        if (configWatchManager != null) {
+            configWatchManager.shutdown();
+        }
+        
+        // Send and save state before anything is cleared
+        if (syncManager != null) {
+            syncManager.shutdown();
+        }
+        
+        if (persistenceManager != null) {
+            persistenceManager.shutdown();
+        }
+        
         if (cooldownManager != null) {
             cooldownManager.clearAllCooldowns();
         }
         
+        if (groupCacheManager != null) {
+            groupCacheManager.shutdown();
+        }
+        
+        if (moderationLogManager != null) {
+            moderationLogManager.shutdown();
+        }
+        
         if (placeholderIntegration != null) {
             placeholderIntegration.unregister();
         }
@@ -85,7 +151,84 @@ public class ChatPlusPlugin extends JavaPlugin {
         return chatToggleManager;
     }
     
+    public GroupCacheManager getGroupCacheManager() {
+        return groupCacheManager;
+    }
+    
     public PlaceholderAPIIntegration getPlaceholderIntegration() {
         return placeholderIntegration;
     }
+    
+    public PermissionCacheManager getPermissionCacheManager() {
+        return permissionCacheManager;
+    }
+    
+    public FloodManager getFloodManager() {
+        return floodManager;
+    }
+    
+    public PersistenceManager getPersistenceManager() {
+        return persistenceManager;
+    }
+    
+    public SyncManager getSyncManager() {
+        return syncManager;
+    }
+    
+    public ModerationLogManager getModerationLogManager() {
+        return moderationLogManager;
+    }
+    
+    public ChatPipeline getChatPipeline() {
+        return chatPipeline;
+    }
+    
+    public ChatMetrics getChatMetrics() {
+        return chatMetrics;
+    }
+    
+    public void configurePipeline() {
+        chatPipeline.configure(configManager.getSnapshot().getPipelineOrder(),
+            configManager.getSnapshot().getDisabledStages());
+        chatPipeline.setMetrics(configManager.getSnapshot().isMetricsEnabled() ? chatMetrics : null);
+    }
+    
+    /**
+     * Rebuilds what depends on the given files after the config manager reloaded
+     * them. Cooldown, mute and flood state is left alone. Safe to call off the main
+     * thread; the permission refresh is handed to the main thread.
+     */
+    public void applyConfigChanges(Collection<String> files) {
+        if (files.contains(ConfigManager.MAIN)) {
+            // Blacklist words and clickable actions live in config.yml
+            filterManager.reload();
+            configurePipeline();
+            if (Bukkit.isPrimaryThread()) {
+                permissionCacheManager.refreshAll();
+            } else {
+                Bukkit.getScheduler().runTask(this, permissionCacheManager::refreshAll);
+            }
+        } else if (files.contains(ConfigManager.FILTERS)) {
+            filterManager.reloadScanner();
+        }
+        
+        if (files.contains(ConfigManager.EMOJIS)) {
+            emojiManager.reload();
+        }
+        
+        if (files.contains(ConfigManager.COOLDOWNS)) {
+            cooldownManager.reload();
+            floodManager.reload();
+        }
+    }
+    
+    // Checked here so PaperChatListener is never loaded on servers without Paper's chat API
+    private boolean isPaperChatSupported() {
+        try {
+            Class.forName("io.papermc.paper.event.player.AsyncChatEvent");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
 }
\ No newline at end of file
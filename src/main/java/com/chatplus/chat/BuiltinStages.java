@@ -0,0 +1,88 @@
+package com.chatplus.chat;
+
+import com.chatplus.ChatPlusPlugin;
+import org.bukkit.entity.Player;
+
+/**
+ * The stages ChatPlus ships with. Their default order is in config.yml under
+ * pipeline.order.
+ */
+public final class BuiltinStages {
+    
+    private BuiltinStages() {
+    }
+    
+    public static void registerAll(ChatPlusPlugin plugin, ChatPipeline pipeline) {
+        // Check if chat is toggled off
+        pipeline.register(ChatStage.of("toggle", context -> {
+            if (plugin.getChatToggleManager().canPlayerChat(context.getPlayer())) {
+                return ChatStage.Result.CONTINUE;
+            }
+            return context.cancel(plugin.getChatToggleManager().getMutedMessage());
+        }));
+        
+        // Blocked words, caps and repeated characters
+        pipeline.register(ChatStage.of("filter", context -> {
+            Player player = context.getPlayer();
+            if (!plugin.getFilterManager().shouldFilterMessage(player, context.getMessage())) {
+                return ChatStage.Result.CONTINUE;
+            }
+            return context.cancel(plugin.getFilterManager().getFilteredMessage(player));
+        }));
+        
+        // Same message as the last one that got through, compared as typed like the recorded one
+        pipeline.register(ChatStage.of("duplicate", context -> {
+            Player player = context.getPlayer();
+            if (!plugin.getCooldownManager().isDuplicateMessage(player, context.getOriginalMessage())) {
+                return ChatStage.Result.CONTINUE;
+            }
+            return context.cancel(plugin.getConfigManager().getMessage("duplicate", "player", player.getName()));
+        }));
+        
+        // Check cooldown and reserve the next window in one step
+        pipeline.register(ChatStage.of("cooldown", context -> {
+            Player player = context.getPlayer();
+            if (plugin.getCooldownManager().tryAcquireCooldown(player, context.getMessage())) {
+                return ChatStage.Result.CONTINUE;
+            }
+            
+            if (plugin.getConfigManager().isSoftThrottleEnabled()) {
+                // Soft throttle: cancel event but don't notify player
+                context.setCancelReason("soft-throttle");
+                return context.cancel(null);
+            }
+            return context.cancel(plugin.getCooldownManager().getCooldownMessage(player));
+        }));
+        
+        // The same message from many players at once
+        pipeline.register(ChatStage.of("flood", context -> {
+            Player player = context.getPlayer();
+            if (!plugin.getFloodManager().isFlooding(player, context.getMessage())) {
+                return ChatStage.Result.CONTINUE;
+            }
+            return context.cancel(plugin.getFloodManager().getFloodMessage(player));
+        }));
+        
+        // Replace profanity with symbols
+        pipeline.register(ChatStage.of("profanity", context -> {
+            String message = context.getMessage();
+            String censored = plugin.getFilterManager().processMessage(context.getPlayer(), message);
+            if (!censored.equals(message)) {
+                plugin.getModerationLogManager().record(context.getPlayer(), "censored", message);
+                context.setMessage(censored);
+            }
+            return ChatStage.Result.CONTINUE;
+        }));
+        
+        pipeline.register(ChatStage.of("emojis", context -> {
+            context.setMessage(plugin.getEmojiManager().replaceEmojis(context.getPlayer(), context.getMessage()));
+            return ChatStage.Result.CONTINUE;
+        }));
+        
+        // Turn :trigger: spans into clickable components
+        pipeline.register(ChatStage.of("clickables", context -> {
+            context.setComponent(plugin.getFilterManager().createClickableComponent(context.getMessage()));
+            return ChatStage.Result.CONTINUE;
+        }));
+    }
+}
\ No newline at end of file
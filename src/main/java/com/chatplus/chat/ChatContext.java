@@ -0,0 +1,88 @@
+package com.chatplus.chat;
+
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.entity.Player;
+
+/**
+ * Mutable state of one chat message while it moves through the pipeline.
+ * A context is created per message and only touched by the thread handling it.
+ */
+public final class ChatContext {
+    
+    private final Player player;
+    private final String originalMessage;
+    private String message;
+    private TextComponent component;
+    private String feedback;
+    private String cancelReason;
+    
+    public ChatContext(Player player, String message) {
+        this.player = player;
+        this.originalMessage = message;
+        this.message = message;
+    }
+    
+    public Player getPlayer() {
+        return player;
+    }
+    
+    /**
+     * The message as the player typed it.
+     */
+    public String getOriginalMessage() {
+        return originalMessage;
+    }
+    
+    /**
+     * The message as rewritten by the stages so far.
+     */
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    /**
+     * Component to send instead of plain chat, or null to keep plain chat.
+     */
+    public TextComponent getComponent() {
+        return component;
+    }
+    
+    public void setComponent(TextComponent component) {
+        this.component = component;
+    }
+    
+    /**
+     * Message sent to the player when a stage cancels, or null to cancel silently.
+     */
+    public String getFeedback() {
+        return feedback;
+    }
+    
+    public void setFeedback(String feedback) {
+        this.feedback = feedback;
+    }
+    
+    /**
+     * Why the message was cancelled, for the moderation log. Stages may set a more
+     * specific reason; otherwise the pipeline uses the name of the cancelling stage.
+     */
+    public String getCancelReason() {
+        return cancelReason;
+    }
+    
+    public void setCancelReason(String cancelReason) {
+        this.cancelReason = cancelReason;
+    }
+    
+    /**
+     * Shorthand for stages: sets the feedback and returns {@link ChatStage.Result#CANCEL}.
+     */
+    public ChatStage.Result cancel(String feedback) {
+        this.feedback = feedback;
+        return ChatStage.Result.CANCEL;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.chatplus.chat;
+
+import com.chatplus.metrics.ChatMetrics;
+import com.chatplus.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the registered chat stages over a message. The active order is compiled
+ * into an array whenever stages or the configured order change, so processing
+ * a message is a plain loop that stops at the first stage that cancels.
+ */
+public final class ChatPipeline {
+    
+    private final Map<String, ChatStage> stages = new LinkedHashMap<>();
+    private List<String> order = Collections.emptyList();
+    private Set<String> disabled = Collections.emptySet();
+    private ChatMetrics metrics;
+    
+    private volatile Compiled active = new Compiled(new ChatStage[0], null);
+    
+    public synchronized void register(ChatStage stage) {
+        if (stages.containsKey(stage.getName())) {
+            throw new IllegalArgumentException("Chat stage already registered: " + stage.getName());
+        }
+        stages.put(stage.getName(), stage);
+        rebuild();
+    }
+    
+    public synchronized boolean unregister(String name) {
+        if (stages.remove(name) == null) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+    
+    /**
+     * Applies pipeline.order and pipeline.disabled. Stages missing from the order run
+     * after the listed ones, in registration order.
+     */
+    public synchronized void configure(List<String> order, Set<String> disabled) {
+        this.order = List.copyOf(order);
+        this.disabled = Set.copyOf(disabled);
+        rebuild();
+    }
+    
+    /**
+     * Times every stage into the given metrics, or stops timing when null.
+     */
+    public synchronized void setMetrics(ChatMetrics metrics) {
+        this.metrics = metrics;
+        rebuild();
+    }
+    
+    private void rebuild() {
+        List<ChatStage> sorted = new ArrayList<>(stages.size());
+        for (String name : order) {
+            ChatStage stage = stages.get(name);
+            if (stage != null && !sorted.contains(stage)) {
+                sorted.add(stage);
+            }
+        }
+        for (ChatStage stage : stages.values()) {
+            if (!sorted.contains(stage)) {
+                sorted.add(stage);
+            }
+        }
+        sorted.removeIf(stage -> disabled.contains(stage.getName()));
+        this.active = new Compiled(sorted.toArray(new ChatStage[0]), metrics);
+    }
+    
+    /**
+     * Runs the active stages in order. Returns false if one of them cancelled the message.
+     */
+    public boolean process(ChatContext context) {
+        Compiled current = active;
+        ChatStage[] stages = current.stages;
+        if (current.timers == null) {
+            for (ChatStage stage : stages) {
+                if (stage.process(context) == ChatStage.Result.CANCEL) {
+                    return cancelled(context, stage);
+                }
+            }
+            return true;
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < stages.length; i++) {
+            ChatStage.Result result = stages[i].process(context);
+            long end = System.nanoTime();
+            current.timers[i].record(end - start);
+            start = end;
+            
+            if (result == ChatStage.Result.CANCEL) {
+                current.cancels[i].increment();
+                return cancelled(context, stages[i]);
+            }
+        }
+        return true;
+    }
+    
+    private static boolean cancelled(ChatContext context, ChatStage stage) {
+        if (context.getCancelReason() == null) {
+            context.setCancelReason(stage.getName());
+        }
+        return false;
+    }
+    
+    public List<String> getActiveStages() {
+        List<String> names = new ArrayList<>();
+        for (ChatStage stage : active.stages) {
+            names.add(stage.getName());
+        }
+        return names;
+    }
+    
+    // Stage order and the matching timers, swapped in as one reference
+    private static final class Compiled {
+        final ChatStage[] stages;
+        final LatencyHistogram[] timers;
+        final LongAdder[] cancels;
+        
+        Compiled(ChatStage[] stages, ChatMetrics metrics) {
+            this.stages = stages;
+            if (metrics == null) {
+                this.timers = null;
+                this.cancels = null;
+                return;
+            }
+            
+            this.timers = new LatencyHistogram[stages.length];
+            this.cancels = new LongAdder[stages.length];
+            for (int i = 0; i < stages.length; i++) {
+                timers[i] = metrics.timer(stages[i].getName());
+                cancels[i] = metrics.counter(ChatMetrics.cancelledCounter(stages[i].getName()));
+            }
+        }
+    }
+}
\ No newline at end of file
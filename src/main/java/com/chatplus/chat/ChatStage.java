@@ -0,0 +1,39 @@
+package com.chatplus.chat;
+
+import java.util.function.Function;
+
+/**
+ * One step of chat processing. Stages run in the order configured under
+ * pipeline.order and share a single {@link ChatContext}. Other plugins can add
+ * their own through {@link ChatPipeline#register(ChatStage)}.
+ */
+public interface ChatStage {
+    
+    enum Result {
+        // Hand the message to the next stage
+        CONTINUE,
+        // Stop the pipeline and cancel the message
+        CANCEL
+    }
+    
+    /**
+     * Name used in pipeline.order and pipeline.disabled. Must be unique.
+     */
+    String getName();
+    
+    Result process(ChatContext context);
+    
+    static ChatStage of(String name, Function<ChatContext, Result> process) {
+        return new ChatStage() {
+            @Override
+            public String getName() {
+                return name;
+            }
+            
+            @Override
+            public Result process(ChatContext context) {
+                return process.apply(context);
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.chatplus.chat;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sends a component chat message to many recipients. The component tree is built
+ * once and the same instance goes to everyone who sees the same header, so a
+ * broadcast to hundreds of players does not build hundreds of identical trees.
+ */
+public final class ComponentBroadcast {
+    
+    private ComponentBroadcast() {
+    }
+    
+    /**
+     * Sends header + body to every recipient. Returns the number of trees built.
+     */
+    public static int send(String header, BaseComponent body, Collection<? extends Player> recipients) {
+        BaseComponent message = build(header, body);
+        for (Player recipient : recipients) {
+            recipient.spigot().sendMessage(message);
+        }
+        return 1;
+    }
+    
+    /**
+     * Sends with a header rendered per recipient. Recipients whose rendered header
+     * is the same share one tree. Returns the number of trees built.
+     */
+    public static int send(String header, BaseComponent body, Collection<? extends Player> recipients,
+                           Function<Player, String> headerFor) {
+        Map<String, BaseComponent> variants = new HashMap<>();
+        for (Player recipient : recipients) {
+            String rendered = headerFor.apply(recipient);
+            BaseComponent message = variants.get(rendered);
+            if (message == null) {
+                // Components keep a parent reference, so every tree gets its own body copy
+                message = build(rendered, variants.isEmpty() ? body : body.duplicate());
+                variants.put(rendered, message);
+            }
+            recipient.spigot().sendMessage(message);
+        }
+        return variants.size();
+    }
+    
+    private static BaseComponent build(String header, BaseComponent body) {
+        TextComponent message = new TextComponent(header);
+        message.addExtra(body);
+        return message;
+    }
+}
\ No newline at end of file
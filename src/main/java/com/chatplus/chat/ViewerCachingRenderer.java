@@ -0,0 +1,68 @@
+package com.chatplus.chat;
+
+import io.papermc.paper.chat.ChatRenderer;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the renderer of one chat event and renders once per viewer class instead
+ * of once per viewer. A {@link ChatRenderer.ViewerUnaware} renderer's output does
+ * not depend on the viewer, so all players share one render and the console gets
+ * another. Any other renderer may be viewer-aware, so each player stays their own
+ * class.
+ * <p>
+ * Paper's own {@link ChatRenderer.Default} must not be wrapped: the server checks
+ * for it to keep the vanilla chat path. See {@link #wrap}.
+ */
+public final class ViewerCachingRenderer implements ChatRenderer {
+    
+    private static final Object CONSOLE = new Object();
+    private static final Object PLAYERS = new Object();
+    
+    private final ChatRenderer delegate;
+    private final boolean viewerUnaware;
+    private final Map<Object, Component> renders = new ConcurrentHashMap<>();
+    
+    private ViewerCachingRenderer(ChatRenderer delegate) {
+        this.delegate = delegate;
+        this.viewerUnaware = delegate instanceof ChatRenderer.ViewerUnaware;
+    }
+    
+    /**
+     * Wraps the renderer, or returns Paper's default renderer unchanged.
+     */
+    public static ChatRenderer wrap(ChatRenderer delegate) {
+        if (delegate instanceof ChatRenderer.Default || delegate instanceof ViewerCachingRenderer) {
+            return delegate;
+        }
+        return new ViewerCachingRenderer(delegate);
+    }
+    
+    @Override
+    public Component render(Player source, Component sourceDisplayName, Component message, Audience viewer) {
+        Object viewerClass = viewerClassOf(viewer);
+        Component cached = renders.get(viewerClass);
+        if (cached != null) {
+            return cached;
+        }
+        
+        Component rendered = delegate.render(source, sourceDisplayName, message, viewer);
+        renders.put(viewerClass, rendered);
+        return rendered;
+    }
+    
+    private Object viewerClassOf(Audience viewer) {
+        if (!(viewer instanceof Player)) {
+            return CONSOLE;
+        }
+        return viewerUnaware ? PLAYERS : ((Player) viewer).getUniqueId();
+    }
+    
+    public int getRenderCount() {
+        return renders.size();
+    }
+}
\ No newline at end of file
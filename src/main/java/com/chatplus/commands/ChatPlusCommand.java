@@ -1,6 +1,13 @@
 package com.chatplus.commands;
 
 import com.chatplus.ChatPlusPlugin;
+import com.chatplus.config.ConfigManager;
+import com.chatplus.managers.ModerationLogManager;
+import com.chatplus.managers.PermissionCacheManager;
+import com.chatplus.metrics.ChatMetrics;
+import com.chatplus.metrics.LatencyHistogram;
+import com.chatplus.state.HeavyHitters;
+import com.chatplus.state.PlayerStateTable;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -39,6 +46,15 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
             case "status":
                 handleStatus(sender);
                 break;
+            case "memory":
+                handleMemory(sender);
+                break;
+            case "metrics":
+                handleMetrics(sender, args);
+                break;
+            case "flood":
+                handleFlood(sender, args);
+                break;
             case "toggle":
                 handleToggle(sender, args);
                 break;
@@ -46,8 +62,7 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
                 sendHelpMessage(sender);
                 break;
             default:
-                sender.sendMessage(plugin.getConfigManager().getMessage("unknown-command")
-                    .replace("{command}", subCommand));
+                sender.sendMessage(plugin.getConfigManager().getMessage("unknown-command", "command", subCommand));
                 sendHelpMessage(sender);
         }
         
@@ -97,8 +112,8 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
                 plugin.getChatToggleManager().setWorldMuted(worldName, !worldMuted);
                 
                 String worldMessage = !worldMuted ?
-                    plugin.getConfigManager().getMessage("world-chat-disabled").replace("{world}", worldName) :
-                    plugin.getConfigManager().getMessage("world-chat-enabled").replace("{world}", worldName);
+                    plugin.getConfigManager().getMessage("world-chat-disabled", "world", worldName) :
+                    plugin.getConfigManager().getMessage("world-chat-enabled", "world", worldName);
                 
                 sender.sendMessage(worldMessage);
                 
@@ -124,11 +139,10 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
         
         try {
             plugin.getConfigManager().reloadAllConfigs();
-            plugin.getCooldownManager().clearAllCooldowns();
+            plugin.applyConfigChanges(ConfigManager.FILES);
             sender.sendMessage(plugin.getConfigManager().getMessage("reload-success"));
         } catch (Exception e) {
-            sender.sendMessage(plugin.getConfigManager().getMessage("reload-error")
-                .replace("{error}", e.getMessage()));
+            sender.sendMessage(plugin.getConfigManager().getMessage("reload-error", "error", e.getMessage()));
             plugin.getLogger().severe("Error reloading configuration: " + e.getMessage());
         }
     }
@@ -153,6 +167,12 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
         long cooldown = plugin.getCooldownManager().getEffectiveCooldown(player);
         sender.sendMessage(ChatColor.GRAY + "Cooldown: " + ChatColor.WHITE + cooldown + "s");
         
+        // Token bucket info
+        double tokens = plugin.getCooldownManager().getTokens(player);
+        if (tokens >= 0) {
+            sender.sendMessage(ChatColor.GRAY + "Tokens: " + ChatColor.WHITE + String.format("%.2f", tokens));
+        }
+        
         // Group info
         String group = plugin.getCooldownManager().getPlayerGroup(player);
         sender.sendMessage(ChatColor.GRAY + "Group: " + ChatColor.WHITE + group);
@@ -171,15 +191,160 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.GRAY + "Emojis: " + ChatColor.WHITE + 
             (emojisEnabled ? "Enabled" : "Disabled"));
         
-        // Permissions
+        // Permissions, as the chat pipeline sees them
+        PermissionCacheManager permissions = plugin.getPermissionCacheManager();
         sender.sendMessage(ChatColor.GRAY + "Bypass Cooldown: " + ChatColor.WHITE + 
-            player.hasPermission("chatplus.bypass.cooldown"));
+            permissions.has(player, PermissionCacheManager.BYPASS_COOLDOWN));
         sender.sendMessage(ChatColor.GRAY + "Bypass Duplicate: " + ChatColor.WHITE + 
-            player.hasPermission("chatplus.bypass.duplicate"));
+            permissions.has(player, PermissionCacheManager.BYPASS_DUPLICATE));
         sender.sendMessage(ChatColor.GRAY + "Bypass Profanity: " + ChatColor.WHITE + 
-            player.hasPermission("chatplus.bypass.profanity"));
+            permissions.has(player, PermissionCacheManager.BYPASS_PROFANITY));
         sender.sendMessage(ChatColor.GRAY + "Bypass Toggle: " + ChatColor.WHITE + 
-            player.hasPermission("chatplus.bypass.toggle"));
+            permissions.has(player, PermissionCacheManager.BYPASS_TOGGLE));
+        sender.sendMessage(ChatColor.GRAY + "Bypass Flood: " + ChatColor.WHITE + 
+            permissions.has(player, PermissionCacheManager.BYPASS_FLOOD));
+        sender.sendMessage(ChatColor.GRAY + "Permission Bits: " + ChatColor.WHITE + 
+            Integer.toBinaryString(permissions.getPermissions(player)));
+    }
+    
+    private void handleMemory(CommandSender sender) {
+        if (!sender.hasPermission("chatplus.admin")) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
+            return;
+        }
+        
+        String prefix = plugin.getConfigManager().getPrefix();
+        int players = plugin.getCooldownManager().getTrackedPlayers();
+        long table = plugin.getCooldownManager().getFootprintBytes();
+        
+        sender.sendMessage(prefix + ChatColor.YELLOW + "Per-player State Memory:");
+        sender.sendMessage(ChatColor.GRAY + "Tracked players: " + ChatColor.WHITE + players);
+        sender.sendMessage(ChatColor.GRAY + "State table: " + ChatColor.WHITE + formatBytes(table));
+        sender.sendMessage(ChatColor.GRAY + "Flood sketch: " + ChatColor.WHITE +
+            formatBytes(plugin.getFloodManager().getFootprintBytes()));
+        
+        // Compare with the boxed maps at the current size and at a few larger ones
+        int[] sizes = {players, 1000, 10000, 100000};
+        for (int size : sizes) {
+            long boxed = PlayerStateTable.estimateBoxedFootprint(size, 40);
+            long compact = PlayerStateTable.estimateFootprint(size);
+            sender.sendMessage(ChatColor.GRAY + "  " + size + " players: " + ChatColor.WHITE +
+                formatBytes(compact) + ChatColor.GRAY + " vs boxed maps " + ChatColor.WHITE + formatBytes(boxed));
+        }
+    }
+    
+    private void handleMetrics(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("chatplus.admin")) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
+            return;
+        }
+        
+        ChatMetrics metrics = plugin.getChatMetrics();
+        String prefix = plugin.getConfigManager().getPrefix();
+        String window = args.length > 1 ? args[1].toLowerCase() : "1m";
+        
+        long windowMillis;
+        switch (window) {
+            case "reset":
+                metrics.reset();
+                sender.sendMessage(prefix + ChatColor.GREEN + "Chat metrics reset.");
+                return;
+            case "10s":
+                windowMillis = 10_000;
+                break;
+            case "1m":
+                windowMillis = 60_000;
+                break;
+            case "5m":
+                windowMillis = 300_000;
+                break;
+            case "all":
+                windowMillis = 0;
+                break;
+            default:
+                sender.sendMessage(ChatColor.RED + "Usage: /chatplus metrics [10s|1m|5m|all|reset]");
+                return;
+        }
+        
+        if (!plugin.getConfigManager().getSnapshot().isMetricsEnabled()) {
+            sender.sendMessage(prefix + ChatColor.GRAY + "Metrics are disabled (metrics.enabled in config.yml).");
+        }
+        
+        sender.sendMessage(prefix + ChatColor.YELLOW + "Chat Metrics (" + (windowMillis == 0 ? "since start" : "last " + window) + "):");
+        for (String name : metrics.getTimerNames()) {
+            LatencyHistogram.Snapshot snapshot = metrics.timer(name).snapshot(windowMillis);
+            StringBuilder line = new StringBuilder()
+                .append(ChatColor.GOLD).append(name).append(ChatColor.GRAY).append(": ")
+                .append(ChatColor.WHITE).append(snapshot.getCount()).append(ChatColor.GRAY).append(" calls");
+            if (windowMillis > 0) {
+                line.append(String.format(" (%.1f/s)", snapshot.getRate()));
+            }
+            if (snapshot.getCount() > 0) {
+                line.append(", p50 ").append(ChatColor.WHITE).append(formatNanos(snapshot.getPercentile(50)))
+                    .append(ChatColor.GRAY).append(", p99 ").append(ChatColor.WHITE).append(formatNanos(snapshot.getPercentile(99)))
+                    .append(ChatColor.GRAY).append(", max ").append(ChatColor.WHITE).append(formatNanos(snapshot.getMax()));
+            }
+            
+            long cancelled = metrics.getCount(ChatMetrics.cancelledCounter(name));
+            if (cancelled > 0) {
+                line.append(ChatColor.GRAY).append(", cancelled ").append(ChatColor.WHITE).append(cancelled);
+            }
+            sender.sendMessage(line.toString());
+        }
+        
+        ModerationLogManager moderationLog = plugin.getModerationLogManager();
+        if (moderationLog.isEnabled()) {
+            sender.sendMessage(ChatColor.GOLD + "moderation log" + ChatColor.GRAY + ": " + ChatColor.WHITE +
+                moderationLog.getWritten() + ChatColor.GRAY + " written, " + ChatColor.WHITE +
+                moderationLog.getDropped() + ChatColor.GRAY + " dropped");
+        }
+    }
+    
+    private void handleFlood(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("chatplus.admin")) {
+            sender.sendMessage(plugin.getConfigManager().getMessage("no-permission"));
+            return;
+        }
+        
+        String prefix = plugin.getConfigManager().getPrefix();
+        if (args.length > 1 && args[1].equalsIgnoreCase("clear")) {
+            plugin.getFloodManager().clear();
+            sender.sendMessage(prefix + ChatColor.GREEN + "Flood blocks cleared.");
+            return;
+        }
+        
+        List<HeavyHitters.Entry> blocked = plugin.getFloodManager().getBlocked();
+        if (blocked.isEmpty()) {
+            sender.sendMessage(prefix + ChatColor.GRAY + "No messages are blocked for flooding.");
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        sender.sendMessage(prefix + ChatColor.YELLOW + "Blocked Floods:");
+        for (HeavyHitters.Entry entry : blocked) {
+            sender.sendMessage(ChatColor.WHITE + "" + entry.getCount() + "x " + ChatColor.GRAY + "\"" +
+                entry.getSample() + "\" " + ChatColor.WHITE + ((entry.getExpiresAt() - now) / 1000 + 1) + "s left");
+        }
+    }
+    
+    private String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1f\u00B5s", nanos / 1_000.0);
+        }
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+    
+    private String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KiB", bytes / 1024.0);
+        }
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
     }
     
     private void handleStatus(CommandSender sender) {
@@ -214,6 +379,9 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
         if (sender.hasPermission("chatplus.admin")) {
             sender.sendMessage(ChatColor.GOLD + "/chatplus reload" + ChatColor.WHITE + " - Reload all YAML files");
             sender.sendMessage(ChatColor.GOLD + "/chatplus test" + ChatColor.WHITE + " - Show current rule resolution");
+            sender.sendMessage(ChatColor.GOLD + "/chatplus memory" + ChatColor.WHITE + " - Show per-player state memory use");
+            sender.sendMessage(ChatColor.GOLD + "/chatplus metrics [10s|1m|5m|all|reset]" + ChatColor.WHITE + " - Show chat latency per stage");
+            sender.sendMessage(ChatColor.GOLD + "/chatplus flood [clear]" + ChatColor.WHITE + " - Show or clear server-wide flood blocks");
             sender.sendMessage(ChatColor.GOLD + "/chatplus toggle chat" + ChatColor.WHITE + " - Toggle global chat on/off");
             sender.sendMessage(ChatColor.GOLD + "/chatplus toggle world <name>" + ChatColor.WHITE + " - Toggle chat for specific world");
         }
@@ -228,7 +396,7 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
             List<String> completions = new ArrayList<>();
             
             if (sender.hasPermission("chatplus.admin")) {
-                completions.addAll(Arrays.asList("reload", "test", "toggle"));
+                completions.addAll(Arrays.asList("reload", "test", "toggle", "memory", "metrics", "flood"));
             }
             
             completions.addAll(Arrays.asList("status", "help"));
@@ -243,6 +411,24 @@ public class ChatPlusCommand implements CommandExecutor, TabCompleter {
             return result;
         }
         
+        if (args.length == 2 && args[0].equalsIgnoreCase("metrics")) {
+            List<String> result = new ArrayList<>();
+            for (String completion : Arrays.asList("10s", "1m", "5m", "all", "reset")) {
+                if (completion.startsWith(args[1].toLowerCase())) {
+                    result.add(completion);
+                }
+            }
+            return result;
+        }
+        
+        if (args.length == 2 && args[0].equalsIgnoreCase("flood")) {
+            List<String> result = new ArrayList<>();
+            if ("clear".startsWith(args[1].toLowerCase())) {
+                result.add("clear");
+            }
+            return result;
+        }
+        
         if (args.length == 2 && args[0].equalsIgnoreCase("toggle")) {
             List<String> completions = Arrays.asList("chat", "world");
             List<String> result = new ArrayList<>();
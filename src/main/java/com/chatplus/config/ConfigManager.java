@@ -1,48 +1,111 @@
 package com.chatplus.config;
 
 import com.chatplus.ChatPlusPlugin;
-import org.bukkit.ChatColor;
-import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ConfigManager {
     
+    public static final String MAIN = "config.yml";
+    public static final String COOLDOWNS = "cooldowns.yml";
+    public static final String EMOJIS = "emojis.yml";
+    public static final String MESSAGES = "messages.yml";
+    public static final String FILTERS = "filters.yml";
+    public static final List<String> FILES = List.of(MAIN, COOLDOWNS, EMOJIS, MESSAGES, FILTERS);
+    
     private final ChatPlusPlugin plugin;
-    private FileConfiguration config;
-    private FileConfiguration cooldownsConfig;
-    private FileConfiguration emojisConfig;
-    private FileConfiguration messagesConfig;
-    private FileConfiguration filtersConfig;
+    private volatile ConfigSnapshot snapshot;
+    private long generation;
+    // Last parsed version of each file, so one file can be reloaded on its own
+    private final Map<String, FileConfiguration> files = new HashMap<>();
     
     public ConfigManager(ChatPlusPlugin plugin) {
         this.plugin = plugin;
         loadAllConfigs();
     }
     
-    public void loadAllConfigs() {
+    public synchronized void loadAllConfigs() {
         // Main config
         plugin.saveDefaultConfig();
         plugin.reloadConfig();
-        this.config = plugin.getConfig();
+        files.put(MAIN, plugin.getConfig());
         
         // Load other configs
-        this.cooldownsConfig = loadConfig("cooldowns.yml");
-        this.emojisConfig = loadConfig("emojis.yml");
-        this.messagesConfig = loadConfig("messages.yml");
-        this.filtersConfig = loadConfig("filters.yml");
+        files.put(COOLDOWNS, loadConfig(COOLDOWNS));
+        files.put(EMOJIS, loadConfig(EMOJIS));
+        files.put(MESSAGES, fillMissingMessages(loadConfig(MESSAGES)));
+        files.put(FILTERS, loadConfig(FILTERS));
+        
+        publish();
     }
     
     public void reloadAllConfigs() {
         loadAllConfigs();
     }
     
+    /**
+     * Parses only the given files again and publishes a snapshot that reuses the
+     * others. A file that fails to parse keeps its previous contents. Returns the
+     * files that were actually reloaded.
+     */
+    public synchronized Set<String> reloadFiles(Collection<String> names) {
+        Set<String> reloaded = new LinkedHashSet<>();
+        for (String name : names) {
+            if (!FILES.contains(name)) {
+                continue;
+            }
+            
+            File file = new File(plugin.getDataFolder(), name);
+            if (!file.exists()) {
+                continue;
+            }
+            
+            // Parse strictly first; a half-saved file would otherwise load as empty
+            YamlConfiguration parsed = new YamlConfiguration();
+            try {
+                parsed.load(file);
+            } catch (IOException | InvalidConfigurationException e) {
+                plugin.getLogger().warning("Not reloading " + name + ": " + e.getMessage());
+                continue;
+            }
+            
+            if (name.equals(MAIN)) {
+                // Other code reads config.yml through the plugin, so reload it there too
+                plugin.reloadConfig();
+                files.put(MAIN, plugin.getConfig());
+            } else {
+                files.put(name, name.equals(MESSAGES) ? fillMissingMessages(parsed) : parsed);
+            }
+            reloaded.add(name);
+        }
+        
+        if (!reloaded.isEmpty()) {
+            publish();
+        }
+        return reloaded;
+    }
+    
+    // Publish everything at once so readers never see a half-loaded state
+    private void publish() {
+        this.snapshot = new ConfigSnapshot(++generation, files.get(MAIN), files.get(COOLDOWNS), files.get(EMOJIS),
+            files.get(MESSAGES), files.get(FILTERS));
+    }
+    
     private FileConfiguration loadConfig(String fileName) {
         File configFile = new File(plugin.getDataFolder(), fileName);
         
@@ -53,127 +116,154 @@ public class ConfigManager {
         return YamlConfiguration.loadConfiguration(configFile);
     }
     
+    // Reports keys missing from messages.yml once per load and falls back to the bundled text
+    private FileConfiguration fillMissingMessages(FileConfiguration messages) {
+        FileConfiguration defaults;
+        try (InputStream resource = plugin.getResource(MESSAGES)) {
+            if (resource == null) {
+                return messages;
+            }
+            try (Reader reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+                defaults = YamlConfiguration.loadConfiguration(reader);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not read the default " + MESSAGES + ": " + e.getMessage());
+            return messages;
+        }
+        
+        List<String> missing = new ArrayList<>();
+        for (String key : defaults.getKeys(false)) {
+            if (!messages.isSet(key)) {
+                missing.add(key);
+                messages.set(key, defaults.getString(key));
+            }
+        }
+        if (!missing.isEmpty()) {
+            plugin.getLogger().warning(MESSAGES + " is missing " + String.join(", ", missing) + "; using the default text");
+        }
+        return messages;
+    }
+    
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    public long getGeneration() {
+        return snapshot.getGeneration();
+    }
+    
     // Main config methods
     public boolean isCooldownEnabled() {
-        return config.getBoolean("cooldown.enabled", true);
+        return snapshot.isCooldownEnabled();
     }
     
     public boolean isEmojiEnabled() {
-        return config.getBoolean("emoji.enabled", true);
+        return snapshot.isEmojiEnabled();
     }
     
     public boolean isFilterEnabled() {
-        return config.getBoolean("filters.enabled", false);
+        return snapshot.isFilterEnabled();
     }
     
     public boolean isAsyncChatEnabled() {
-        return config.getBoolean("async-chat.enabled", true);
+        return snapshot.isAsyncChatEnabled();
     }
     
     public String getPrefix() {
-        return colorize(config.getString("general.prefix", "&7[&6ChatPlus&7] "));
+        return snapshot.getPrefix();
     }
     
     // Cooldown config methods
     public int getDefaultCooldown() {
-        return cooldownsConfig.getInt("default.time", 3);
+        return snapshot.getDefaultCooldown();
     }
     
     public boolean isSoftThrottleEnabled() {
-        return cooldownsConfig.getBoolean("soft-throttle.enabled", false);
+        return snapshot.isSoftThrottleEnabled();
     }
     
     public boolean isMovementResetEnabled() {
-        return cooldownsConfig.getBoolean("movement-reset.enabled", false);
+        return snapshot.isMovementResetEnabled();
     }
     
     public boolean isDuplicateCheckEnabled() {
-        return cooldownsConfig.getBoolean("duplicate-check.enabled", true);
+        return snapshot.isDuplicateCheckEnabled();
     }
     
-    public ConfigurationSection getGroupCooldowns() {
-        return cooldownsConfig.getConfigurationSection("groups");
+    public Map<String, Long> getGroupCooldowns() {
+        return snapshot.getGroupCooldowns();
     }
     
-    public ConfigurationSection getWorldCooldowns() {
-        return cooldownsConfig.getConfigurationSection("worlds");
+    public Map<String, Long> getWorldCooldowns() {
+        return snapshot.getWorldCooldowns();
     }
     
-    public ConfigurationSection getTimeBasedCooldowns() {
-        return cooldownsConfig.getConfigurationSection("time-based");
+    public Map<String, Long> getTimeBasedCooldowns() {
+        return snapshot.getTimeBasedCooldowns();
     }
     
-    public ConfigurationSection getLengthBasedCooldowns() {
-        return cooldownsConfig.getConfigurationSection("length-based");
+    public Map<String, Long> getLengthBasedCooldowns() {
+        return snapshot.getLengthBasedCooldowns();
     }
     
     // Emoji config methods
     public Map<String, String> getEmojiMappings() {
-        Map<String, String> mappings = new HashMap<>();
-        ConfigurationSection section = emojisConfig.getConfigurationSection("mappings");
-        
-        if (section != null) {
-            for (String key : section.getKeys(false)) {
-                mappings.put(key, section.getString(key));
-            }
-        }
-        
-        return mappings;
+        return snapshot.getEmojiMappings();
     }
     
     public List<String> getEmojiReplacementOrder() {
-        return emojisConfig.getStringList("replacement-order");
+        return snapshot.getEmojiReplacementOrder();
     }
     
     public boolean isWordBoundaryEnabled() {
-        return emojisConfig.getBoolean("word-boundary", false);
+        return snapshot.isWordBoundaryEnabled();
     }
     
     public boolean isCommandReplacementEnabled() {
-        return emojisConfig.getBoolean("replace-in-commands", false);
+        return snapshot.isCommandReplacementEnabled();
     }
     
-    public ConfigurationSection getEmojiGroups() {
-        return emojisConfig.getConfigurationSection("groups");
+    public Map<String, Boolean> getEmojiGroups() {
+        return snapshot.getEmojiGroups();
     }
     
-    public ConfigurationSection getEmojiWorlds() {
-        return emojisConfig.getConfigurationSection("worlds");
+    public Map<String, Boolean> getEmojiWorlds() {
+        return snapshot.getEmojiWorlds();
     }
     
     // Filter config methods
     public int getMaxRepeatedChars() {
-        return filtersConfig.getInt("max-repeated-chars", 3);
+        return snapshot.getMaxRepeatedChars();
     }
     
     public double getMaxCapsRatio() {
-        return filtersConfig.getDouble("max-caps-ratio", 0.8);
+        return snapshot.getMaxCapsRatio();
     }
     
     public int getMinCapsLength() {
-        return filtersConfig.getInt("min-caps-length", 5);
+        return snapshot.getMinCapsLength();
     }
     
     // Messages config methods
-    public String getMessage(String key) {
-        String message = messagesConfig.getString(key, "&cMessage not found: " + key);
-        return colorize(message);
-    }
-    
-    public String getCooldownMessage() {
-        return getMessage("cooldown");
+    public MessageTemplate getTemplate(String key) {
+        MessageTemplate template = snapshot.getMessages().get(key);
+        if (template == null) {
+            // Missing keys are filled in from the bundled messages.yml at load, so this
+            // only happens for a key that file does not have either
+            return MessageTemplate.compile(key);
+        }
+        return template;
     }
     
-    public String getDuplicateMessage() {
-        return getMessage("duplicate");
+    public String getMessage(String key) {
+        return getTemplate(key).render();
     }
     
-    public String getFilteredMessage() {
-        return getMessage("filtered");
+    public String getMessage(String key, String name, Object value) {
+        return getTemplate(key).render(name, value);
     }
     
-    private String colorize(String message) {
-        if (message == null) return "";
-        return ChatColor.translateAlternateColorCodes('&', message);
+    public String getMessage(String key, String name1, Object value1, String name2, Object value2) {
+        return getTemplate(key).render(name1, value1, name2, value2);
     }
 }
\ No newline at end of file
@@ -0,0 +1,584 @@
+package com.chatplus.config;
+
+import com.chatplus.state.PlayerStateTable;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed, immutable view of all five YAML files. A new snapshot is built on every
+ * (re)load and published by ConfigManager through a single volatile reference,
+ * so chat threads only ever read final fields.
+ */
+public final class ConfigSnapshot {
+    
+    // Cheap rejections first; the expensive rewrites only run for messages that get through
+    static final List<String> DEFAULT_PIPELINE_ORDER = List.of(
+        "toggle", "duplicate", "filter", "cooldown", "flood", "profanity", "emojis", "clickables");
+    
+    // Bumped on every load so derived caches can tell when they are stale
+    private final long generation;
+    
+    // config.yml
+    private final boolean cooldownEnabled;
+    private final boolean emojiEnabled;
+    private final boolean filterEnabled;
+    private final boolean asyncChatEnabled;
+    private final boolean asyncProcessing;
+    private final String prefix;
+    private final List<String> blacklistWords;
+    private final String blacklistAction;
+    private final String replacementType;
+    private final String customReplacement;
+    private final List<String> pipelineOrder;
+    private final Set<String> disabledStages;
+    private final boolean metricsEnabled;
+    private final boolean persistenceEnabled;
+    private final long persistenceFlushSeconds;
+    private final long persistenceMaxAgeMillis;
+    private final boolean syncEnabled;
+    private final String syncServerId;
+    private final String syncTransport;
+    private final String syncDirectory;
+    private final long syncMaxFileBytes;
+    private final long syncIntervalMillis;
+    private final boolean moderationLogEnabled;
+    private final int moderationLogBufferSize;
+    private final boolean moderationLogBlocking;
+    private final long moderationLogMaxFileBytes;
+    private final int moderationLogMaxFiles;
+    private final boolean autoReloadEnabled;
+    private final long autoReloadDelayMillis;
+    
+    // cooldowns.yml
+    private final int defaultCooldown;
+    private final boolean softThrottleEnabled;
+    private final boolean movementResetEnabled;
+    private final int movementResetDistance;
+    private final boolean duplicateCheckEnabled;
+    private final int duplicateHistory;
+    private final int duplicateMaxDistance;
+    private final long duplicateWindowMillis;
+    private final boolean floodEnabled;
+    private final int floodThreshold;
+    private final long floodWindowMillis;
+    private final long floodBlockMillis;
+    private final int floodMaxDistance;
+    private final int floodMinLength;
+    private final Map<String, Long> groupCooldowns;
+    private final Map<String, Long> worldCooldowns;
+    private final Map<String, Long> timeBasedCooldowns;
+    private final Map<String, Long> lengthBasedCooldowns;
+    private final String cooldownType;
+    private final TokenBucketSpec defaultBucket;
+    private final Map<String, TokenBucketSpec> groupBuckets;
+    private final Map<String, TokenBucketSpec> worldBuckets;
+    private final double baseCost;
+    private final int charactersPerToken;
+    private final double emojiCost;
+    private final double clickableCost;
+    
+    // emojis.yml
+    private final Map<String, String> emojiMappings;
+    private final List<String> emojiReplacementOrder;
+    private final boolean wordBoundaryEnabled;
+    private final boolean commandReplacementEnabled;
+    private final Map<String, Boolean> emojiGroups;
+    private final Map<String, Boolean> emojiWorlds;
+    
+    // filters.yml
+    private final int maxRepeatedChars;
+    private final double maxCapsRatio;
+    private final int minCapsLength;
+    private final boolean checkVariations;
+    private final boolean normalizeLeetspeak;
+    private final boolean normalizeHomoglyphs;
+    private final boolean stripInvisibleChars;
+    private final boolean collapsePadding;
+    private final String paddingChars;
+    
+    // messages.yml, colorized and split at placeholders
+    private final Map<String, MessageTemplate> messages;
+    
+    ConfigSnapshot(long generation, FileConfiguration config, FileConfiguration cooldowns,
+                   FileConfiguration emojis, FileConfiguration messages, FileConfiguration filters) {
+        this.generation = generation;
+        
+        this.cooldownEnabled = config.getBoolean("cooldown.enabled", true);
+        this.emojiEnabled = config.getBoolean("emoji.enabled", true);
+        this.filterEnabled = config.getBoolean("filters.enabled", false);
+        this.asyncChatEnabled = config.getBoolean("async-chat.enabled", true);
+        this.asyncProcessing = config.getBoolean("async-chat.async-processing", true);
+        this.prefix = colorize(config.getString("general.prefix", "&7[&6ChatPlus&7] "));
+        this.blacklistWords = List.copyOf(config.getStringList("filters.blacklist.words"));
+        this.blacklistAction = config.getString("filters.blacklist.action", "replace");
+        this.replacementType = config.getString("filters.blacklist.replacement-type", "asterisk");
+        this.customReplacement = config.getString("filters.blacklist.custom-replacement", "*");
+        this.pipelineOrder = config.isList("pipeline.order")
+            ? List.copyOf(config.getStringList("pipeline.order"))
+            : DEFAULT_PIPELINE_ORDER;
+        this.disabledStages = Set.copyOf(config.getStringList("pipeline.disabled"));
+        this.metricsEnabled = config.getBoolean("metrics.enabled", true);
+        this.persistenceEnabled = config.getBoolean("persistence.enabled", true);
+        this.persistenceFlushSeconds = Math.max(1, config.getLong("persistence.flush-interval", 5));
+        this.persistenceMaxAgeMillis = Math.max(1, config.getLong("persistence.max-age", 60)) * 60_000L;
+        this.syncEnabled = config.getBoolean("sync.enabled", false);
+        this.syncServerId = config.getString("sync.server-id", "server-1");
+        this.syncTransport = config.getString("sync.transport", "file").toLowerCase();
+        this.syncDirectory = config.getString("sync.directory", "../ChatPlus-sync");
+        this.syncMaxFileBytes = Math.max(64, config.getLong("sync.max-file-size", 1024)) * 1024L;
+        this.syncIntervalMillis = Math.max(50, config.getLong("sync.interval", 250));
+        this.moderationLogEnabled = config.getBoolean("moderation-log.enabled", true);
+        this.moderationLogBufferSize = Math.max(16, config.getInt("moderation-log.buffer-size", 8192));
+        this.moderationLogBlocking = config.getString("moderation-log.when-full", "drop").equalsIgnoreCase("block");
+        this.moderationLogMaxFileBytes = Math.max(1, config.getLong("moderation-log.max-file-size", 10240)) * 1024L;
+        this.moderationLogMaxFiles = Math.max(1, config.getInt("moderation-log.max-files", 10));
+        this.autoReloadEnabled = config.getBoolean("auto-reload.enabled", true);
+        this.autoReloadDelayMillis = Math.max(50, config.getLong("auto-reload.delay", 500));
+        
+        this.defaultCooldown = cooldowns.getInt("default.time", 3);
+        this.softThrottleEnabled = cooldowns.getBoolean("soft-throttle.enabled", false);
+        this.movementResetEnabled = cooldowns.getBoolean("movement-reset.enabled", false);
+        this.movementResetDistance = Math.max(1, cooldowns.getInt("movement-reset.distance", 1));
+        this.duplicateCheckEnabled = cooldowns.getBoolean("duplicate-check.enabled", true);
+        this.duplicateHistory = Math.max(0, Math.min(PlayerStateTable.HISTORY,
+            cooldowns.getInt("duplicate-check.history", 5)));
+        this.duplicateMaxDistance = Math.max(0, Math.min(64, cooldowns.getInt("duplicate-check.max-distance", 6)));
+        this.floodEnabled = cooldowns.getBoolean("flood-detection.enabled", false);
+        this.floodThreshold = Math.max(2, cooldowns.getInt("flood-detection.threshold", 15));
+        this.floodWindowMillis = Math.max(1, cooldowns.getLong("flood-detection.window-seconds", 30)) * 1000L;
+        this.floodBlockMillis = Math.max(1, cooldowns.getLong("flood-detection.block-seconds", 60)) * 1000L;
+        this.floodMaxDistance = Math.max(0, Math.min(64, cooldowns.getInt("flood-detection.max-distance", 6)));
+        this.floodMinLength = Math.max(0, cooldowns.getInt("flood-detection.min-length", 24));
+        this.groupCooldowns = readLongs(cooldowns.getConfigurationSection("groups"));
+        this.worldCooldowns = readLongs(cooldowns.getConfigurationSection("worlds"));
+        this.timeBasedCooldowns = readLongs(cooldowns.getConfigurationSection("time-based"));
+        this.lengthBasedCooldowns = readLongs(cooldowns.getConfigurationSection("length-based"));
+        this.cooldownType = cooldowns.getString("type", "fixed").toLowerCase();
+        this.defaultBucket = new TokenBucketSpec(
+            cooldowns.getDouble("token-bucket.capacity", 5),
+            cooldowns.getDouble("token-bucket.refill-per-second", 0.5));
+        this.groupBuckets = readBuckets(cooldowns.getConfigurationSection("token-bucket.groups"), defaultBucket);
+        this.worldBuckets = readBuckets(cooldowns.getConfigurationSection("token-bucket.worlds"), defaultBucket);
+        this.baseCost = cooldowns.getDouble("token-bucket.cost.base", 1.0);
+        this.charactersPerToken = cooldowns.getInt("token-bucket.cost.characters-per-token", 50);
+        this.emojiCost = cooldowns.getDouble("token-bucket.cost.emoji", 0.25);
+        this.clickableCost = cooldowns.getDouble("token-bucket.cost.clickable", 1.0);
+        
+        this.emojiMappings = readStrings(emojis.getConfigurationSection("mappings"));
+        this.emojiReplacementOrder = List.copyOf(emojis.getStringList("replacement-order"));
+        this.wordBoundaryEnabled = emojis.getBoolean("word-boundary", false);
+        this.commandReplacementEnabled = emojis.getBoolean("replace-in-commands", false);
+        this.emojiGroups = readBooleans(emojis.getConfigurationSection("groups"));
+        this.emojiWorlds = readBooleans(emojis.getConfigurationSection("worlds"));
+        
+        this.duplicateWindowMillis = Math.max(1, filters.getLong("duplicate-check.time-window", 60)) * 1000L;
+        this.maxRepeatedChars = filters.getInt("max-repeated-chars", 3);
+        this.maxCapsRatio = filters.getDouble("max-caps-ratio", 0.8);
+        this.minCapsLength = filters.getInt("min-caps-length", 5);
+        this.checkVariations = filters.getBoolean("profanity-filter.detection.check-variations", false);
+        this.normalizeLeetspeak = filters.getBoolean("profanity-filter.detection.variations.leetspeak", true);
+        this.normalizeHomoglyphs = filters.getBoolean("profanity-filter.detection.variations.homoglyphs", true);
+        this.stripInvisibleChars = filters.getBoolean("profanity-filter.detection.variations.invisible-chars", true);
+        this.collapsePadding = filters.getBoolean("profanity-filter.detection.variations.padding", true);
+        this.paddingChars = filters.getString("profanity-filter.detection.variations.padding-chars", " .-_*,'`~");
+        
+        this.messages = readTemplates(messages);
+    }
+    
+    private static Map<String, Long> readLongs(ConfigurationSection section) {
+        if (section == null) {
+            return Collections.emptyMap();
+        }
+        
+        // Non-numeric values are skipped, just like getLong(key, fallback) ignored them
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            Object value = section.get(key);
+            if (value instanceof Number) {
+                values.put(key, ((Number) value).longValue());
+            }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+    
+    private static Map<String, TokenBucketSpec> readBuckets(ConfigurationSection section, TokenBucketSpec fallback) {
+        if (section == null) {
+            return Collections.emptyMap();
+        }
+        
+        // Either key missing falls back to the default bucket's value
+        Map<String, TokenBucketSpec> values = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            ConfigurationSection bucket = section.getConfigurationSection(key);
+            if (bucket != null) {
+                values.put(key, new TokenBucketSpec(
+                    bucket.getDouble("capacity", fallback.getCapacity()),
+                    bucket.getDouble("refill-per-second", fallback.getRefillPerSecond())));
+            }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+    
+    private static Map<String, Boolean> readBooleans(ConfigurationSection section) {
+        if (section == null) {
+            return Collections.emptyMap();
+        }
+        
+        Map<String, Boolean> values = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            values.put(key, section.getBoolean(key, true));
+        }
+        return Collections.unmodifiableMap(values);
+    }
+    
+    private static Map<String, String> readStrings(ConfigurationSection section) {
+        if (section == null) {
+            return Collections.emptyMap();
+        }
+        
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            String value = section.getString(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+    
+    private static Map<String, MessageTemplate> readTemplates(ConfigurationSection section) {
+        Map<String, MessageTemplate> templates = new LinkedHashMap<>();
+        readStrings(section).forEach((key, value) -> templates.put(key, MessageTemplate.compile(value)));
+        return Collections.unmodifiableMap(templates);
+    }
+    
+    static String colorize(String message) {
+        if (message == null) return "";
+        return ChatColor.translateAlternateColorCodes('&', message);
+    }
+    
+    public long getGeneration() {
+        return generation;
+    }
+    
+    public boolean isCooldownEnabled() {
+        return cooldownEnabled;
+    }
+    
+    public boolean isEmojiEnabled() {
+        return emojiEnabled;
+    }
+    
+    public boolean isFilterEnabled() {
+        return filterEnabled;
+    }
+    
+    public boolean isAsyncChatEnabled() {
+        return asyncChatEnabled;
+    }
+    
+    public boolean isAsyncProcessing() {
+        return asyncProcessing;
+    }
+    
+    public String getPrefix() {
+        return prefix;
+    }
+    
+    public List<String> getBlacklistWords() {
+        return blacklistWords;
+    }
+    
+    public String getBlacklistAction() {
+        return blacklistAction;
+    }
+    
+    public String getReplacementType() {
+        return replacementType;
+    }
+    
+    public String getCustomReplacement() {
+        return customReplacement;
+    }
+    
+    public List<String> getPipelineOrder() {
+        return pipelineOrder;
+    }
+    
+    public Set<String> getDisabledStages() {
+        return disabledStages;
+    }
+    
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+    
+    public boolean isPersistenceEnabled() {
+        return persistenceEnabled;
+    }
+    
+    public long getPersistenceFlushSeconds() {
+        return persistenceFlushSeconds;
+    }
+    
+    /**
+     * Saved player state older than this is not restored at startup.
+     */
+    public long getPersistenceMaxAgeMillis() {
+        return persistenceMaxAgeMillis;
+    }
+    
+    public boolean isSyncEnabled() {
+        return syncEnabled;
+    }
+    
+    public String getSyncServerId() {
+        return syncServerId;
+    }
+    
+    public String getSyncTransport() {
+        return syncTransport;
+    }
+    
+    /**
+     * Shared directory for the file transport, relative to the plugin folder; the
+     * channel name for the loopback transport.
+     */
+    public String getSyncDirectory() {
+        return syncDirectory;
+    }
+    
+    public long getSyncMaxFileBytes() {
+        return syncMaxFileBytes;
+    }
+    
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+    
+    public boolean isModerationLogEnabled() {
+        return moderationLogEnabled;
+    }
+    
+    public int getModerationLogBufferSize() {
+        return moderationLogBufferSize;
+    }
+    
+    /**
+     * True when chat threads wait for room in a full buffer instead of dropping records.
+     */
+    public boolean isModerationLogBlocking() {
+        return moderationLogBlocking;
+    }
+    
+    public long getModerationLogMaxFileBytes() {
+        return moderationLogMaxFileBytes;
+    }
+    
+    public int getModerationLogMaxFiles() {
+        return moderationLogMaxFiles;
+    }
+    
+    public boolean isAutoReloadEnabled() {
+        return autoReloadEnabled;
+    }
+    
+    /**
+     * How long a file has to stay unchanged before it is reloaded.
+     */
+    public long getAutoReloadDelayMillis() {
+        return autoReloadDelayMillis;
+    }
+    
+    public int getDefaultCooldown() {
+        return defaultCooldown;
+    }
+    
+    public boolean isSoftThrottleEnabled() {
+        return softThrottleEnabled;
+    }
+    
+    public boolean isMovementResetEnabled() {
+        return movementResetEnabled;
+    }
+    
+    /**
+     * Blocks a player has to move from where they stood before movement resets the cooldown.
+     */
+    public int getMovementResetDistance() {
+        return movementResetDistance;
+    }
+    
+    public boolean isDuplicateCheckEnabled() {
+        return duplicateCheckEnabled;
+    }
+    
+    /**
+     * Recent messages the near-duplicate check compares against; 0 checks only
+     * for an exact repeat of the last message.
+     */
+    public int getDuplicateHistory() {
+        return duplicateHistory;
+    }
+    
+    public int getDuplicateMaxDistance() {
+        return duplicateMaxDistance;
+    }
+    
+    /**
+     * How long a sent message counts for the duplicate checks, from filters.yml.
+     */
+    public long getDuplicateWindowMillis() {
+        return duplicateWindowMillis;
+    }
+    
+    public boolean isFloodEnabled() {
+        return floodEnabled;
+    }
+    
+    /**
+     * Sends of one message, by anyone, within the window that trigger a server-wide block.
+     */
+    public int getFloodThreshold() {
+        return floodThreshold;
+    }
+    
+    public long getFloodWindowMillis() {
+        return floodWindowMillis;
+    }
+    
+    public long getFloodBlockMillis() {
+        return floodBlockMillis;
+    }
+    
+    public int getFloodMaxDistance() {
+        return floodMaxDistance;
+    }
+    
+    public int getFloodMinLength() {
+        return floodMinLength;
+    }
+    
+    public Map<String, Long> getGroupCooldowns() {
+        return groupCooldowns;
+    }
+    
+    public Map<String, Long> getWorldCooldowns() {
+        return worldCooldowns;
+    }
+    
+    public Map<String, Long> getTimeBasedCooldowns() {
+        return timeBasedCooldowns;
+    }
+    
+    public Map<String, Long> getLengthBasedCooldowns() {
+        return lengthBasedCooldowns;
+    }
+    
+    public String getCooldownType() {
+        return cooldownType;
+    }
+    
+    public boolean isTokenBucketEnabled() {
+        return cooldownType.equals("token-bucket");
+    }
+    
+    public TokenBucketSpec getDefaultBucket() {
+        return defaultBucket;
+    }
+    
+    public Map<String, TokenBucketSpec> getGroupBuckets() {
+        return groupBuckets;
+    }
+    
+    public Map<String, TokenBucketSpec> getWorldBuckets() {
+        return worldBuckets;
+    }
+    
+    public double getBaseCost() {
+        return baseCost;
+    }
+    
+    public int getCharactersPerToken() {
+        return charactersPerToken;
+    }
+    
+    public double getEmojiCost() {
+        return emojiCost;
+    }
+    
+    public double getClickableCost() {
+        return clickableCost;
+    }
+    
+    public Map<String, String> getEmojiMappings() {
+        return emojiMappings;
+    }
+    
+    public List<String> getEmojiReplacementOrder() {
+        return emojiReplacementOrder;
+    }
+    
+    public boolean isWordBoundaryEnabled() {
+        return wordBoundaryEnabled;
+    }
+    
+    public boolean isCommandReplacementEnabled() {
+        return commandReplacementEnabled;
+    }
+    
+    public Map<String, Boolean> getEmojiGroups() {
+        return emojiGroups;
+    }
+    
+    public Map<String, Boolean> getEmojiWorlds() {
+        return emojiWorlds;
+    }
+    
+    public int getMaxRepeatedChars() {
+        return maxRepeatedChars;
+    }
+    
+    public double getMaxCapsRatio() {
+        return maxCapsRatio;
+    }
+    
+    public int getMinCapsLength() {
+        return minCapsLength;
+    }
+    
+    public boolean isCheckVariations() {
+        return checkVariations;
+    }
+    
+    public boolean isNormalizeLeetspeak() {
+        return normalizeLeetspeak;
+    }
+    
+    public boolean isNormalizeHomoglyphs() {
+        return normalizeHomoglyphs;
+    }
+    
+    public boolean isStripInvisibleChars() {
+        return stripInvisibleChars;
+    }
+    
+    public boolean isCollapsePadding() {
+        return collapsePadding;
+    }
+    
+    public String getPaddingChars() {
+        return paddingChars;
+    }
+    
+    public Map<String, MessageTemplate> getMessages() {
+        return messages;
+    }
+}
\ No newline at end of file
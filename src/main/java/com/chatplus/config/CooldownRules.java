@@ -0,0 +1,286 @@
+package com.chatplus.config;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * The group, world, time-of-day and length rules of cooldowns.yml compiled into
+ * lookup tables. Resolving a cooldown is a couple of map reads, a binary search
+ * and an array read. Invalid rules are reported once, when compiling.
+ */
+public final class CooldownRules {
+    
+    private static final long NONE = -1;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    
+    private final long generation;
+    private final long defaultCooldown;
+    private final Map<String, Long> groups;
+    private final Map<String, Long> worlds;
+    
+    // Disjoint time-of-day segments: segmentStarts[i] until the next start maps to segmentValues[i]
+    private final long[] segmentStarts;
+    private final long[] segmentValues;
+    
+    // Cooldown per message length; longer messages fall back to scanning the ranges
+    private final long[] byLength;
+    private final long[][] lengthRanges;
+    
+    // Token bucket mode
+    private final TokenBucketSpec defaultBucket;
+    private final Map<String, TokenBucketSpec> groupBuckets;
+    private final Map<String, TokenBucketSpec> worldBuckets;
+    private final double baseCost;
+    private final int charactersPerToken;
+    private final double emojiCost;
+    private final double clickableCost;
+    
+    private final ZoneRules zoneRules;
+    private volatile long zoneOffsetMillis;
+    private volatile long nextTransitionMillis;
+    
+    private CooldownRules(ConfigSnapshot config, long[] segmentStarts, long[] segmentValues,
+                          long[] byLength, long[][] lengthRanges) {
+        this.generation = config.getGeneration();
+        this.defaultCooldown = config.getDefaultCooldown();
+        this.groups = config.getGroupCooldowns();
+        this.worlds = config.getWorldCooldowns();
+        this.segmentStarts = segmentStarts;
+        this.segmentValues = segmentValues;
+        this.byLength = byLength;
+        this.lengthRanges = lengthRanges;
+        this.defaultBucket = config.getDefaultBucket();
+        this.groupBuckets = config.getGroupBuckets();
+        this.worldBuckets = config.getWorldBuckets();
+        this.baseCost = config.getBaseCost();
+        this.charactersPerToken = config.getCharactersPerToken();
+        this.emojiCost = config.getEmojiCost();
+        this.clickableCost = config.getClickableCost();
+        this.zoneRules = ZoneId.systemDefault().getRules();
+        updateZoneOffset(System.currentTimeMillis());
+    }
+    
+    public static CooldownRules compile(ConfigSnapshot config, Logger logger) {
+        if (!config.getCooldownType().equals("fixed") && !config.isTokenBucketEnabled()) {
+            logger.warning("Unknown cooldown type in cooldowns.yml: " + config.getCooldownType() + ", using fixed");
+        }
+        
+        // Time ranges: start and end of day in millis, end inclusive like the old isAfter check
+        List<long[]> timeRanges = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : config.getTimeBasedCooldowns().entrySet()) {
+            long[] range = parseTimeRange(entry.getKey());
+            if (range == null) {
+                logger.warning("Invalid time range format in cooldowns.yml: " + entry.getKey());
+                continue;
+            }
+            timeRanges.add(new long[]{range[0], range[1], entry.getValue()});
+        }
+        
+        // Split the day at every boundary; each piece takes the first rule that covers it
+        TreeSet<Long> boundaries = new TreeSet<>();
+        boundaries.add(0L);
+        for (long[] range : timeRanges) {
+            boundaries.add(range[0]);
+            if (range[1] + 1 < DAY_MILLIS) {
+                boundaries.add(range[1] + 1);
+            }
+        }
+        
+        long[] starts = new long[boundaries.size()];
+        long[] values = new long[boundaries.size()];
+        int segments = 0;
+        for (long start : boundaries) {
+            long value = NONE;
+            for (long[] range : timeRanges) {
+                if (coversTime(range, start)) {
+                    value = range[2];
+                    break;
+                }
+            }
+            if (segments > 0 && values[segments - 1] == value) continue;
+            starts[segments] = start;
+            values[segments] = value;
+            segments++;
+        }
+        
+        // Length ranges: "min-max", ">n" and "<n"
+        List<long[]> lengthRanges = new ArrayList<>();
+        long maxBound = 0;
+        for (Map.Entry<String, Long> entry : config.getLengthBasedCooldowns().entrySet()) {
+            long[] range = parseLengthRange(entry.getKey());
+            if (range == null) {
+                logger.warning("Invalid length range format in cooldowns.yml: " + entry.getKey());
+                continue;
+            }
+            lengthRanges.add(new long[]{range[0], range[1], entry.getValue()});
+            if (range[0] != Long.MIN_VALUE) {
+                maxBound = Math.max(maxBound, range[0]);
+            }
+            if (range[1] != Long.MAX_VALUE) {
+                maxBound = Math.max(maxBound, range[1]);
+            }
+        }
+        
+        // Chat messages are short, so the table covers every length that matters
+        long[][] lengthArray = lengthRanges.toArray(new long[0][]);
+        int tableSize = (int) Math.min(maxBound + 1, 1024);
+        long[] byLength = new long[tableSize];
+        for (int length = 0; length < tableSize; length++) {
+            byLength[length] = firstLengthMatch(lengthArray, length);
+        }
+        
+        return new CooldownRules(config, Arrays.copyOf(starts, segments), Arrays.copyOf(values, segments),
+            byLength, lengthArray);
+    }
+    
+    private static boolean coversTime(long[] range, long time) {
+        if (range[0] < range[1]) {
+            return time >= range[0] && time <= range[1];
+        }
+        // Range crosses midnight
+        return time >= range[0] || time <= range[1];
+    }
+    
+    private static long firstLengthMatch(long[][] ranges, long length) {
+        for (long[] range : ranges) {
+            if (length >= range[0] && length <= range[1]) {
+                return range[2];
+            }
+        }
+        return NONE;
+    }
+    
+    private static long[] parseTimeRange(String range) {
+        try {
+            String[] parts = range.split("-");
+            if (parts.length == 2) {
+                long start = LocalTime.parse(parts[0].trim()).toNanoOfDay() / 1_000_000;
+                long end = LocalTime.parse(parts[1].trim()).toNanoOfDay() / 1_000_000;
+                return new long[]{start, end};
+            }
+        } catch (Exception e) {
+            // Reported by the caller
+        }
+        return null;
+    }
+    
+    // Returns inclusive [min, max] bounds
+    private static long[] parseLengthRange(String range) {
+        try {
+            if (range.contains("-")) {
+                String[] parts = range.split("-");
+                if (parts.length == 2) {
+                    long min = Integer.parseInt(parts[0].trim());
+                    long max = Integer.parseInt(parts[1].trim());
+                    return min <= max ? new long[]{min, max} : null;
+                }
+            } else if (range.startsWith(">")) {
+                return new long[]{Integer.parseInt(range.substring(1).trim()) + 1L, Long.MAX_VALUE};
+            } else if (range.startsWith("<")) {
+                return new long[]{Long.MIN_VALUE, Integer.parseInt(range.substring(1).trim()) - 1L};
+            }
+        } catch (NumberFormatException e) {
+            // Reported by the caller
+        }
+        return null;
+    }
+    
+    public long getGeneration() {
+        return generation;
+    }
+    
+    /**
+     * Cooldown in seconds for a player in the given group and world at the given time.
+     */
+    public long resolve(String group, String world, long currentTimeMillis) {
+        long cooldown = defaultCooldown;
+        
+        if (group != null) {
+            Long groupCooldown = groups.get(group);
+            if (groupCooldown != null) {
+                cooldown = groupCooldown;
+            }
+        }
+        
+        Long worldCooldown = worlds.get(world);
+        if (worldCooldown != null) {
+            cooldown = worldCooldown;
+        }
+        
+        if (segmentStarts.length > 1 || segmentValues[0] != NONE) {
+            long timeCooldown = segmentValues[segmentFor(timeOfDay(currentTimeMillis))];
+            if (timeCooldown != NONE) {
+                cooldown = timeCooldown;
+            }
+        }
+        
+        return cooldown;
+    }
+    
+    /**
+     * Cooldown for a message of the given length, or {@code fallback} when no rule matches.
+     */
+    public long resolveLength(int length, long fallback) {
+        long value = length < byLength.length ? byLength[length] : firstLengthMatch(lengthRanges, length);
+        return value != NONE ? value : fallback;
+    }
+    
+    /**
+     * Token bucket for a player; a world bucket overrides a group bucket, like the
+     * fixed cooldowns.
+     */
+    public TokenBucketSpec resolveBucket(String group, String world) {
+        TokenBucketSpec bucket = worldBuckets.get(world);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (group != null) {
+            bucket = groupBuckets.get(group);
+            if (bucket != null) {
+                return bucket;
+            }
+        }
+        return defaultBucket;
+    }
+    
+    /**
+     * Tokens a message costs: the base cost, one more per started block of
+     * characters-per-token beyond the first, and extra for emojis and clickables.
+     */
+    public double messageCost(int length, int emojis, int clickables) {
+        double cost = baseCost;
+        if (charactersPerToken > 0 && length > charactersPerToken) {
+            cost += (length - 1) / charactersPerToken;
+        }
+        return cost + emojis * emojiCost + clickables * clickableCost;
+    }
+    
+    private int segmentFor(long time) {
+        int index = Arrays.binarySearch(segmentStarts, time);
+        return index >= 0 ? index : -index - 2;
+    }
+    
+    private long timeOfDay(long currentTimeMillis) {
+        if (currentTimeMillis >= nextTransitionMillis) {
+            updateZoneOffset(currentTimeMillis);
+        }
+        return Math.floorMod(currentTimeMillis + zoneOffsetMillis, DAY_MILLIS);
+    }
+    
+    // The UTC offset only changes at DST transitions, so it is cached until the next one
+    private void updateZoneOffset(long currentTimeMillis) {
+        Instant now = Instant.ofEpochMilli(currentTimeMillis);
+        this.zoneOffsetMillis = zoneRules.getOffset(now).getTotalSeconds() * 1000L;
+        ZoneOffsetTransition next = zoneRules.nextTransition(now);
+        this.nextTransitionMillis = next != null ? next.toEpochSecond() * 1000L : Long.MAX_VALUE;
+    }
+}
\ No newline at end of file
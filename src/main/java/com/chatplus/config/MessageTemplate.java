@@ -0,0 +1,101 @@
+package com.chatplus.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A messages.yml entry compiled once per load: color codes are already translated
+ * and the text is split into literal segments around its {placeholder} slots, so
+ * rendering is one pass of appends into a builder owned by the calling thread.
+ * Placeholders that are not given a value are left in the text as written.
+ */
+public final class MessageTemplate {
+    
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+    
+    // literals.length == slots.length + 1; slot i sits between literals i and i + 1
+    private final String[] literals;
+    private final String[] slots;
+    
+    private MessageTemplate(String[] literals, String[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+    }
+    
+    /**
+     * Colorizes the raw text and splits it at placeholders like {time}.
+     */
+    public static MessageTemplate compile(String raw) {
+        String text = ConfigSnapshot.colorize(raw);
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        
+        int literalStart = 0;
+        for (int open = text.indexOf('{'); open >= 0; open = text.indexOf('{', open + 1)) {
+            int close = placeholderEnd(text, open);
+            if (close < 0) {
+                continue;
+            }
+            literals.add(text.substring(literalStart, open));
+            slots.add(text.substring(open + 1, close));
+            literalStart = close + 1;
+            open = close;
+        }
+        literals.add(text.substring(literalStart));
+        
+        return new MessageTemplate(literals.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+    
+    // Index of the closing brace when a placeholder name starts at open, else -1
+    private static int placeholderEnd(String text, int open) {
+        int i = open + 1;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '}') {
+                return i > open + 1 ? i : -1;
+            }
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+    
+    public String render() {
+        return slots.length == 0 ? literals[0] : render(null, null, null, null);
+    }
+    
+    public String render(String name, Object value) {
+        return render(name, value, null, null);
+    }
+    
+    public String render(String name1, Object value1, String name2, Object value2) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            String slot = slots[i];
+            if (slot.equals(name1)) {
+                out.append(value1);
+            } else if (slot.equals(name2)) {
+                out.append(value2);
+            } else {
+                out.append('{').append(slot).append('}');
+            }
+            out.append(literals[i + 1]);
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Names of the placeholders in the order they appear.
+     */
+    public List<String> getPlaceholders() {
+        return List.of(slots);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.chatplus.config;
+
+/**
+ * Size and refill rate of a player's token bucket.
+ */
+public final class TokenBucketSpec {
+    
+    private final double capacity;
+    private final double refillPerSecond;
+    
+    public TokenBucketSpec(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+    }
+    
+    public double getCapacity() {
+        return capacity;
+    }
+    
+    public double getRefillPerSecond() {
+        return refillPerSecond;
+    }
+}
\ No newline at end of file
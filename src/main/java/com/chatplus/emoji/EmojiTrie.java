@@ -0,0 +1,215 @@
+package com.chatplus.emoji;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Emoji codes compiled into a flat trie. Replacement is a single left-to-right
+ * pass that takes the longest code at each position and writes into one buffer.
+ */
+public final class EmojiTrie {
+    
+    public static final EmojiTrie EMPTY = new EmojiTrie(new TreeMap<>());
+    
+    // Bitset of chars that can start a code, so most positions are skipped at once
+    private final long[] firstChars = new long[1024];
+    
+    // Node i owns edges [edgeStart[i], edgeStart[i + 1]), sorted by edgeChar
+    private final int[] edgeStart;
+    private final char[] edgeChar;
+    private final int[] edgeTarget;
+    private final int[] nodeValue;
+    private final String[] replacements;
+    
+    private EmojiTrie(Map<String, String> mappings) {
+        Node root = new Node();
+        List<String> values = new ArrayList<>();
+        for (Map.Entry<String, String> entry : mappings.entrySet()) {
+            String code = entry.getKey();
+            if (code == null || code.isEmpty() || entry.getValue() == null) continue;
+            
+            Node node = root;
+            for (int i = 0; i < code.length(); i++) {
+                node = node.children.computeIfAbsent(code.charAt(i), c -> new Node());
+            }
+            node.value = values.size();
+            values.add(entry.getValue());
+            
+            char first = code.charAt(0);
+            firstChars[first >>> 6] |= 1L << first;
+        }
+        
+        // Number the nodes breadth-first and lay the edges out contiguously
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            for (Node child : node.children.values()) {
+                child.id = nodes.size();
+                nodes.add(child);
+            }
+        }
+        
+        this.edgeStart = new int[nodes.size() + 1];
+        this.edgeChar = new char[nodes.size() - 1];
+        this.edgeTarget = new int[nodes.size() - 1];
+        this.nodeValue = new int[nodes.size()];
+        int edge = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            edgeStart[i] = edge;
+            nodeValue[i] = node.value;
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                edgeChar[edge] = child.getKey();
+                edgeTarget[edge] = child.getValue().id;
+                edge++;
+            }
+        }
+        edgeStart[nodes.size()] = edge;
+        this.replacements = values.toArray(new String[0]);
+    }
+    
+    /**
+     * Compiles the mappings. When a replacement order is given, only the listed codes
+     * are active, matching the old replacement-order behaviour.
+     */
+    public static EmojiTrie compile(Map<String, String> mappings, List<String> replacementOrder) {
+        if (replacementOrder == null || replacementOrder.isEmpty()) {
+            return new EmojiTrie(mappings);
+        }
+        
+        Map<String, String> ordered = new TreeMap<>();
+        for (String code : replacementOrder) {
+            String emoji = mappings.get(code);
+            if (emoji != null) {
+                ordered.put(code, emoji);
+            }
+        }
+        return new EmojiTrie(ordered);
+    }
+    
+    public boolean isEmpty() {
+        return replacements.length == 0;
+    }
+    
+    public int size() {
+        return replacements.length;
+    }
+    
+    public String replace(String text, boolean wordBoundary) {
+        StringBuilder result = null;
+        int copied = 0;
+        int length = text.length();
+        
+        int i = 0;
+        while (i < length) {
+            if (!canStart(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            
+            long match = longestMatch(text, i, wordBoundary);
+            if (match < 0) {
+                i++;
+                continue;
+            }
+            
+            int end = (int) (match >>> 32);
+            if (result == null) {
+                result = new StringBuilder(length + 16);
+            }
+            result.append(text, copied, i).append(replacements[(int) match]);
+            copied = end;
+            i = end;
+        }
+        
+        if (result == null) {
+            return text;
+        }
+        return result.append(text, copied, length).toString();
+    }
+    
+    public boolean containsCode(CharSequence text, boolean wordBoundary) {
+        for (int i = 0; i < text.length(); i++) {
+            if (canStart(text.charAt(i)) && longestMatch(text, i, wordBoundary) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Counts the codes a replacement pass would substitute.
+     */
+    public int countCodes(CharSequence text, boolean wordBoundary) {
+        int count = 0;
+        int i = 0;
+        while (i < text.length()) {
+            long match = canStart(text.charAt(i)) ? longestMatch(text, i, wordBoundary) : -1;
+            if (match < 0) {
+                i++;
+            } else {
+                count++;
+                i = (int) (match >>> 32);
+            }
+        }
+        return count;
+    }
+    
+    private boolean canStart(char c) {
+        return (firstChars[c >>> 6] & (1L << c)) != 0;
+    }
+    
+    // Returns (end << 32 | value) of the longest code starting at start, or -1
+    private long longestMatch(CharSequence text, int start, boolean wordBoundary) {
+        long best = -1;
+        int node = 0;
+        for (int i = start; i < text.length(); i++) {
+            node = child(node, text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            int value = nodeValue[node];
+            if (value >= 0 && (!wordBoundary || isBounded(text, start, i + 1))) {
+                best = ((long) (i + 1) << 32) | value;
+            }
+        }
+        return best;
+    }
+    
+    private int child(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char key = edgeChar[mid];
+            if (key < c) {
+                low = mid + 1;
+            } else if (key > c) {
+                high = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return -1;
+    }
+    
+    // A code may not be glued to a word on either side, e.g. "xd" in "xdd"
+    private static boolean isBounded(CharSequence text, int start, int end) {
+        boolean before = start > 0 && isWordChar(text.charAt(start - 1)) && isWordChar(text.charAt(start));
+        boolean after = end < text.length() && isWordChar(text.charAt(end)) && isWordChar(text.charAt(end - 1));
+        return !before && !after;
+    }
+    
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+    
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        int value = -1;
+        int id;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,334 @@
+package com.chatplus.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Aho-Corasick automaton over the blacklist, compiled once per reload.
+ * Matching is case-insensitive and applies the same word boundaries as the
+ * old {@code \b word \b} regexes, in a single pass over the message.
+ */
+public final class BlacklistAutomaton {
+    
+    public static final BlacklistAutomaton EMPTY = compile(new ArrayList<>(), null, UnaryOperator.identity());
+    
+    private final String[] words;
+    private final String[] replacements;
+    private final UnaryOperator<String> replacementFactory;
+    private final int[] wordLengths;
+    
+    // Maps every char to its alphabet class; class 0 means "not in any word"
+    private final char[] charClass;
+    private final int alphabetSize;
+    
+    // Full DFA: delta[state * alphabetSize + class] -> next state
+    private final int[] delta;
+    // First word ending at a state, and the next state on the dictionary-suffix chain
+    private final int[] output;
+    private final int[] outputLink;
+    
+    private BlacklistAutomaton(String[] words, String[] replacements, UnaryOperator<String> replacementFactory,
+                               char[] charClass, int alphabetSize, int[] delta, int[] output, int[] outputLink) {
+        this.words = words;
+        this.replacements = replacements;
+        this.replacementFactory = replacementFactory;
+        this.charClass = charClass;
+        this.alphabetSize = alphabetSize;
+        this.delta = delta;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.wordLengths = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            wordLengths[i] = words[i].length();
+        }
+    }
+    
+    public static BlacklistAutomaton compile(List<String> blacklist, UnaryOperator<String> replacementFactory) {
+        return compile(blacklist, null, replacementFactory);
+    }
+    
+    /**
+     * Compiles the blacklist. When a normalizer is given, the words are folded through
+     * it so they match text that went through the same normalizer.
+     */
+    public static BlacklistAutomaton compile(List<String> blacklist, TextNormalizer normalizer,
+                                             UnaryOperator<String> replacementFactory) {
+        // Keep the configured order but drop blanks and duplicates
+        Set<String> unique = new LinkedHashSet<>();
+        List<String> original = new ArrayList<>();
+        for (String word : blacklist) {
+            if (word == null || word.trim().isEmpty()) continue;
+            String folded = normalizer != null ? normalizer.normalizeWord(word) : fold(word);
+            if (folded.isEmpty()) continue;
+            if (unique.add(folded)) {
+                original.add(word);
+            }
+        }
+        
+        String[] words = unique.toArray(new String[0]);
+        String[] replacements = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            replacements[i] = replacementFactory.apply(original.get(i));
+        }
+        
+        // Compress the alphabet to the chars that actually occur in the blacklist
+        char[] charClass = new char[Character.MAX_VALUE + 1];
+        int alphabetSize = 1;
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (charClass[c] == 0) {
+                    charClass[c] = (char) alphabetSize++;
+                }
+            }
+        }
+        
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        trie.add(new int[alphabetSize]);
+        terminal.add(-1);
+        for (int w = 0; w < words.length; w++) {
+            int state = 0;
+            for (int i = 0; i < words[w].length(); i++) {
+                int cls = charClass[words[w].charAt(i)];
+                if (trie.get(state)[cls] == 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(new int[alphabetSize]);
+                    terminal.add(-1);
+                }
+                state = trie.get(state)[cls];
+            }
+            terminal.set(state, w);
+        }
+        
+        // Breadth-first pass turns the trie into a DFA and fills the failure/output links
+        int states = trie.size();
+        int[] delta = new int[states * alphabetSize];
+        int[] fail = new int[states];
+        int[] output = new int[states];
+        int[] outputLink = new int[states];
+        for (int s = 0; s < states; s++) {
+            output[s] = terminal.get(s);
+            outputLink[s] = -1;
+        }
+        
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            int next = trie.get(0)[cls];
+            delta[cls] = next;
+            if (next != 0) {
+                queue.add(next);
+            }
+        }
+        
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int failState = fail[state];
+            outputLink[state] = output[failState] >= 0 ? failState : outputLink[failState];
+            
+            int[] children = trie.get(state);
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                int child = children[cls];
+                if (child != 0) {
+                    fail[child] = delta[failState * alphabetSize + cls];
+                    delta[state * alphabetSize + cls] = child;
+                    queue.add(child);
+                } else {
+                    delta[state * alphabetSize + cls] = delta[failState * alphabetSize + cls];
+                }
+            }
+        }
+        
+        return new BlacklistAutomaton(words, replacements, replacementFactory, charClass, alphabetSize,
+            delta, output, outputLink);
+    }
+    
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+    
+    public int size() {
+        return words.length;
+    }
+    
+    public String getWord(int index) {
+        return words[index];
+    }
+    
+    public String getReplacement(int index) {
+        return replacements[index];
+    }
+    
+    /**
+     * Returns the index of the first blacklisted word found, or -1.
+     */
+    public int findFirst(CharSequence text) {
+        if (words.length == 0) {
+            return -1;
+        }
+        
+        int length = text.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            state = next(state, text.charAt(i));
+            int word = matchEndingAt(text, state, i + 1);
+            if (word >= 0) {
+                return word;
+            }
+        }
+        
+        return -1;
+    }
+    
+    public boolean containsMatch(CharSequence text) {
+        return findFirst(text) >= 0;
+    }
+    
+    // Single-step access for scanners that fuse the blacklist into their own loop
+    int next(int state, char c) {
+        return delta[state * alphabetSize + charClass[Character.toLowerCase(c)]];
+    }
+    
+    /**
+     * Returns a word that ends at {@code end} in the given state and satisfies the
+     * word boundaries, or -1.
+     */
+    int matchEndingAt(CharSequence text, int state, int end) {
+        for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+            int word = output[s];
+            if (isBounded(text, end - wordLengths[word], end)) {
+                return word;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Replaces every blacklisted word with its precomputed replacement. Overlapping
+     * matches resolve leftmost-longest. Returns the input itself when nothing matched.
+     */
+    public String replace(String text) {
+        int[] matches = collectMatches(text);
+        if (matches == null) {
+            return text;
+        }
+        
+        StringBuilder result = new StringBuilder(text.length() + 16);
+        int position = 0;
+        for (int m = 1; m < matches[0]; m += 3) {
+            int start = matches[m];
+            if (start < position) continue;
+            result.append(text, position, start);
+            result.append(replacements[matches[m + 2]]);
+            position = matches[m + 1];
+        }
+        result.append(text, position, text.length());
+        
+        return result.toString();
+    }
+    
+    /**
+     * Like {@link #replace(String)}, but matches against the normalized form of the
+     * text and masks the corresponding span of the original.
+     */
+    public String replace(String text, NormalizedText normalized) {
+        int[] matches = collectMatches(normalized);
+        if (matches == null) {
+            return text;
+        }
+        
+        StringBuilder result = new StringBuilder(text.length() + 16);
+        int position = 0;
+        for (int m = 1; m < matches[0]; m += 3) {
+            int start = normalized.originalStart(matches[m]);
+            if (start < position) continue;
+            int end = normalized.originalEnd(matches[m + 1]);
+            int word = matches[m + 2];
+            
+            result.append(text, position, start);
+            if (end - start == wordLengths[word]) {
+                result.append(replacements[word]);
+            } else {
+                // Padded or obfuscated spans get a replacement sized to what was typed
+                result.append(replacementFactory.apply(text.substring(start, end)));
+            }
+            position = end;
+        }
+        result.append(text, position, text.length());
+        
+        return result.toString();
+    }
+    
+    /**
+     * Collects bounded matches as (start, end, word) triples sorted by start and then
+     * by descending length. Slot 0 holds the used length; null when nothing matched.
+     */
+    int[] collectMatches(CharSequence text) {
+        if (words.length == 0) {
+            return null;
+        }
+        
+        int[] matches = null;
+        int length = text.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            state = next(state, text.charAt(i));
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int word = output[s];
+                int start = i + 1 - wordLengths[word];
+                if (!isBounded(text, start, i + 1)) continue;
+                
+                if (matches == null) {
+                    matches = new int[1 + 3 * 4];
+                    matches[0] = 1;
+                } else if (matches[0] + 3 > matches.length) {
+                    matches = Arrays.copyOf(matches, matches.length * 2);
+                }
+                
+                // Insertion keeps the list ordered; matches arrive almost sorted already
+                int pos = matches[0];
+                while (pos > 1 && comesBefore(start, i + 1, matches[pos - 3], matches[pos - 2])) {
+                    matches[pos] = matches[pos - 3];
+                    matches[pos + 1] = matches[pos - 2];
+                    matches[pos + 2] = matches[pos - 1];
+                    pos -= 3;
+                }
+                matches[pos] = start;
+                matches[pos + 1] = i + 1;
+                matches[pos + 2] = word;
+                matches[0] += 3;
+            }
+        }
+        
+        return matches;
+    }
+    
+    private static boolean comesBefore(int start, int end, int otherStart, int otherEnd) {
+        return start < otherStart || (start == otherStart && end > otherEnd);
+    }
+    
+    // Same semantics as wrapping the word in \b ... \b
+    private static boolean isBounded(CharSequence text, int start, int end) {
+        boolean before = start > 0 && isWordChar(text.charAt(start - 1));
+        boolean after = end < text.length() && isWordChar(text.charAt(end));
+        return before != isWordChar(text.charAt(start)) && after != isWordChar(text.charAt(end - 1));
+    }
+    
+    static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+    
+    static String fold(String word) {
+        char[] chars = word.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.chatplus.filter;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+
+import java.util.Map;
+
+/**
+ * Finds :trigger: spans in one left-to-right pass and builds the component tree
+ * as it goes. Triggers are bucketed by length and compared in place, so a
+ * message without triggers is scanned without allocating anything.
+ */
+public final class ClickableTokenizer {
+    
+    public static final ClickableTokenizer EMPTY = new ClickableTokenizer(Map.of());
+    
+    // triggers[length] and templates[length] hold the actions whose trigger has that length
+    private final String[][] triggers;
+    private final BaseComponent[][] templates;
+    private final int maxLength;
+    
+    public ClickableTokenizer(Map<String, ? extends BaseComponent> actions) {
+        int max = 0;
+        for (String trigger : actions.keySet()) {
+            if (trigger.indexOf(':') < 0) {
+                max = Math.max(max, trigger.length());
+            }
+        }
+        
+        int[] counts = new int[max + 1];
+        for (String trigger : actions.keySet()) {
+            if (!trigger.isEmpty() && trigger.indexOf(':') < 0) {
+                counts[trigger.length()]++;
+            }
+        }
+        
+        this.triggers = new String[max + 1][];
+        this.templates = new BaseComponent[max + 1][];
+        for (int length = 0; length <= max; length++) {
+            triggers[length] = new String[counts[length]];
+            templates[length] = new BaseComponent[counts[length]];
+            counts[length] = 0;
+        }
+        for (Map.Entry<String, ? extends BaseComponent> entry : actions.entrySet()) {
+            String trigger = entry.getKey();
+            if (trigger.isEmpty() || trigger.indexOf(':') >= 0) continue;
+            
+            int length = trigger.length();
+            triggers[length][counts[length]] = trigger;
+            templates[length][counts[length]] = entry.getValue();
+            counts[length]++;
+        }
+        this.maxLength = max;
+    }
+    
+    public boolean isEmpty() {
+        return maxLength == 0;
+    }
+    
+    public boolean containsTrigger(String message) {
+        return nextTrigger(message, 0) >= 0;
+    }
+    
+    public int countTriggers(String message) {
+        int count = 0;
+        int colon = nextTrigger(message, 0);
+        while (colon >= 0) {
+            count++;
+            colon = nextTrigger(message, message.indexOf(':', colon + 1) + 1);
+        }
+        return count;
+    }
+    
+    /**
+     * Builds the component for a message, or returns null when it has no triggers.
+     * Text between triggers becomes plain components; each trigger gets a copy of
+     * its prebuilt clickable component.
+     */
+    public TextComponent tokenize(String message) {
+        int colon = nextTrigger(message, 0);
+        if (colon < 0) {
+            return null;
+        }
+        
+        TextComponent root = new TextComponent("");
+        int copied = 0;
+        while (colon >= 0) {
+            int close = message.indexOf(':', colon + 1);
+            if (colon > copied) {
+                root.addExtra(new TextComponent(message.substring(copied, colon)));
+            }
+            root.addExtra(template(message, colon + 1, close).duplicate());
+            copied = close + 1;
+            colon = nextTrigger(message, copied);
+        }
+        
+        if (copied < message.length()) {
+            root.addExtra(new TextComponent(message.substring(copied)));
+        }
+        return root;
+    }
+    
+    // Index of the opening colon of the next known trigger at or after from, or -1
+    private int nextTrigger(String message, int from) {
+        if (maxLength == 0) {
+            return -1;
+        }
+        
+        int open = message.indexOf(':', from);
+        while (open >= 0) {
+            int close = message.indexOf(':', open + 1);
+            if (close < 0) {
+                return -1;
+            }
+            if (template(message, open + 1, close) != null) {
+                return open;
+            }
+            // The closing colon may open the next trigger, as in "a:b:rules:"
+            open = close;
+        }
+        return -1;
+    }
+    
+    private BaseComponent template(String message, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > maxLength) {
+            return null;
+        }
+        
+        String[] candidates = triggers[length];
+        for (int i = 0; i < candidates.length; i++) {
+            if (message.regionMatches(start, candidates[i], 0, length)) {
+                return templates[length][i];
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
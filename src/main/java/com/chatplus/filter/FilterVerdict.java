@@ -0,0 +1,57 @@
+package com.chatplus.filter;
+
+/**
+ * Result of a message scan. Instances are shared per combination of fired
+ * rules, so returning one never allocates.
+ */
+public final class FilterVerdict {
+    
+    public static final int PROFANITY = 1;
+    public static final int REPEATED_CHARS = 1 << 1;
+    public static final int EXCESSIVE_CAPS = 1 << 2;
+    
+    private static final FilterVerdict[] CACHE = new FilterVerdict[8];
+    
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new FilterVerdict(i);
+        }
+    }
+    
+    public static final FilterVerdict PASS = CACHE[0];
+    
+    private final int rules;
+    
+    private FilterVerdict(int rules) {
+        this.rules = rules;
+    }
+    
+    public static FilterVerdict of(int rules) {
+        return CACHE[rules & (CACHE.length - 1)];
+    }
+    
+    public boolean isFiltered() {
+        return rules != 0;
+    }
+    
+    public boolean has(int rule) {
+        return (rules & rule) != 0;
+    }
+    
+    public int getRules() {
+        return rules;
+    }
+    
+    @Override
+    public String toString() {
+        if (rules == 0) {
+            return "PASS";
+        }
+        
+        StringBuilder builder = new StringBuilder();
+        if (has(PROFANITY)) builder.append("PROFANITY,");
+        if (has(REPEATED_CHARS)) builder.append("REPEATED_CHARS,");
+        if (has(EXCESSIVE_CAPS)) builder.append("EXCESSIVE_CAPS,");
+        return builder.substring(0, builder.length() - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.chatplus.filter;
+
+/**
+ * Collects the caps, repeated-character and blacklist statistics of a message
+ * in one pass over its chars. Immutable; rebuilt by FilterManager on reload.
+ */
+public final class MessageScanner {
+    
+    private final BlacklistAutomaton blacklist;
+    private final TextNormalizer normalizer;
+    private final int maxRepeatedChars;
+    private final double maxCapsRatio;
+    private final int minCapsLength;
+    
+    public MessageScanner(BlacklistAutomaton blacklist, TextNormalizer normalizer,
+                          int maxRepeatedChars, double maxCapsRatio, int minCapsLength) {
+        this.blacklist = blacklist;
+        this.normalizer = normalizer;
+        this.maxRepeatedChars = maxRepeatedChars;
+        this.maxCapsRatio = maxCapsRatio;
+        this.minCapsLength = minCapsLength;
+    }
+    
+    public BlacklistAutomaton getBlacklist() {
+        return blacklist;
+    }
+    
+    public TextNormalizer getNormalizer() {
+        return normalizer;
+    }
+    
+    public FilterVerdict scan(CharSequence message, boolean checkBlacklist) {
+        int length = message.length();
+        boolean checkRepeats = maxRepeatedChars > 0;
+        boolean checkCaps = maxCapsRatio > 0 && length >= minCapsLength;
+        checkBlacklist = checkBlacklist && !blacklist.isEmpty();
+        
+        int rules = 0;
+        if (checkBlacklist && normalizer != null) {
+            // Normalization may drop or merge chars, so it gets its own pass
+            if (blacklist.containsMatch(normalizer.normalize(message))) {
+                rules |= FilterVerdict.PROFANITY;
+            }
+            checkBlacklist = false;
+        }
+        
+        int state = 0;
+        char lastChar = 0;
+        int repeatCount = 1;
+        int letterCount = 0;
+        int capsCount = 0;
+        
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            
+            if (checkBlacklist) {
+                state = blacklist.next(state, c);
+                if (blacklist.matchEndingAt(message, state, i + 1) >= 0) {
+                    rules |= FilterVerdict.PROFANITY;
+                    checkBlacklist = false;
+                }
+            }
+            
+            if (checkRepeats) {
+                if (c == lastChar) {
+                    if (++repeatCount > maxRepeatedChars) {
+                        rules |= FilterVerdict.REPEATED_CHARS;
+                        checkRepeats = false;
+                    }
+                } else {
+                    repeatCount = 1;
+                    lastChar = c;
+                }
+            }
+            
+            if (checkCaps && Character.isLetter(c)) {
+                letterCount++;
+                if (Character.isUpperCase(c)) {
+                    capsCount++;
+                }
+            }
+        }
+        
+        if (checkCaps && letterCount > 0 && (double) capsCount / letterCount > maxCapsRatio) {
+            rules |= FilterVerdict.EXCESSIVE_CAPS;
+        }
+        
+        return FilterVerdict.of(rules);
+    }
+}
\ No newline at end of file
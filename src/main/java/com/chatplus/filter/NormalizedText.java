@@ -0,0 +1,65 @@
+package com.chatplus.filter;
+
+/**
+ * Output buffer of {@link TextNormalizer}. Every normalized char remembers the
+ * index of the original char it came from, so matches can be mapped back onto
+ * what the player actually typed. Buffers are reused per thread.
+ */
+public final class NormalizedText implements CharSequence {
+    
+    private char[] chars = new char[256];
+    private int[] offsets = new int[256];
+    private int length;
+    private int originalLength;
+    
+    void reset(int capacity, int originalLength) {
+        if (chars.length < capacity) {
+            int size = Math.max(capacity, chars.length * 2);
+            chars = new char[size];
+            offsets = new int[size];
+        }
+        this.length = 0;
+        this.originalLength = originalLength;
+    }
+    
+    void append(char c, int originalIndex) {
+        chars[length] = c;
+        offsets[length] = originalIndex;
+        length++;
+    }
+    
+    /**
+     * Original index of the normalized char at {@code index}.
+     */
+    public int originalStart(int index) {
+        return offsets[index];
+    }
+    
+    /**
+     * Original end (exclusive) of a normalized span ending at {@code end}. Chars that
+     * were dropped right after the span, like trailing combining marks, are included.
+     */
+    public int originalEnd(int end) {
+        return end < length ? offsets[end] : originalLength;
+    }
+    
+    @Override
+    public int length() {
+        return length;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        return chars[index];
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.chatplus.filter;
+
+import java.text.Normalizer;
+
+/**
+ * Folds obfuscated text (leetspeak, homoglyphs, zero-width chars, combining marks
+ * and single-letter padding like "b.a.d") into the plain form the blacklist is
+ * matched against. All folding goes through lookup tables built once per reload.
+ */
+public final class TextNormalizer {
+    
+    private static final byte DROP = 1;
+    private static final byte PAD = 2;
+    private static final byte LEET = 3;
+    
+    private static final String LEETSPEAK_FROM = "4@31!0|$57+8962";
+    private static final String LEETSPEAK_TO = "aaeiiolssttbggz";
+    
+    // Lowercase Cyrillic and Greek letters that render like Latin ones
+    private static final String HOMOGLYPH_FROM = "\u0430\u0432\u0435\u0451\u043A\u043C\u043D\u043E\u0440\u0441"
+        + "\u0442\u0443\u0445\u0456\u0457\u0458\u0455\u04BB\u0501"
+        + "\u03B1\u03B2\u03B5\u03B7\u03B9\u03BA\u03BD\u03BF\u03C1\u03C4\u03C5\u03C7";
+    private static final String HOMOGLYPH_TO = "abeekmhopc"
+        + "tyxiijshd"
+        + "abenikvoptux";
+    
+    // Invisible chars that are not in Unicode's FORMAT category
+    private static final String INVISIBLE = "\u034F\u115F\u1160\u3164\uFFA0";
+    
+    private static final ThreadLocal<NormalizedText> BUFFER = ThreadLocal.withInitial(NormalizedText::new);
+    
+    private final char[] fold = new char[Character.MAX_VALUE + 1];
+    private final byte[] kind = new byte[Character.MAX_VALUE + 1];
+    
+    public TextNormalizer(boolean leetspeak, boolean homoglyphs, boolean stripInvisible,
+                          boolean collapsePadding, String paddingChars) {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            fold[c] = Character.toLowerCase((char) c);
+        }
+        
+        if (homoglyphs) {
+            // Accented Latin letters fold to their base letter
+            for (int c = 0x00C0; c <= 0x024F; c++) {
+                foldToBase((char) c);
+            }
+            for (int c = 0x1E00; c <= 0x1EFF; c++) {
+                foldToBase((char) c);
+            }
+            // Fullwidth ASCII
+            for (int c = 0xFF01; c <= 0xFF5E; c++) {
+                fold[c] = Character.toLowerCase((char) (c - 0xFEE0));
+            }
+            applyMapping(HOMOGLYPH_FROM, HOMOGLYPH_TO);
+        }
+        
+        if (leetspeak) {
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                int index = LEETSPEAK_FROM.indexOf(fold[c]);
+                if (index >= 0) {
+                    fold[c] = LEETSPEAK_TO.charAt(index);
+                    kind[c] = LEET;
+                }
+            }
+        }
+        
+        if (collapsePadding) {
+            for (int i = 0; i < paddingChars.length(); i++) {
+                kind[paddingChars.charAt(i)] = PAD;
+            }
+        }
+        
+        if (stripInvisible) {
+            // Zero-width chars are FORMAT; combining marks are the two mark categories
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                int type = Character.getType(c);
+                if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                    || type == Character.FORMAT) {
+                    kind[c] = DROP;
+                }
+            }
+            for (int i = 0; i < INVISIBLE.length(); i++) {
+                kind[INVISIBLE.charAt(i)] = DROP;
+            }
+        }
+    }
+    
+    // Remaps every char whose current fold is in "from", so uppercase variants follow too
+    private void applyMapping(String from, String to) {
+        char[] mapping = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            mapping[c] = (char) c;
+        }
+        for (int i = 0; i < from.length(); i++) {
+            mapping[from.charAt(i)] = to.charAt(i);
+        }
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            fold[c] = mapping[fold[c]];
+        }
+    }
+    
+    private void foldToBase(char c) {
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        char base = decomposed.charAt(0);
+        if (base < 0x80 && Character.isLetter(base)) {
+            fold[c] = Character.toLowerCase(base);
+        }
+    }
+    
+    /**
+     * Normalizes into a buffer owned by the calling thread. The result is only valid
+     * until the next call on the same thread.
+     */
+    public NormalizedText normalize(CharSequence text) {
+        NormalizedText out = BUFFER.get();
+        normalize(text, out);
+        return out;
+    }
+    
+    /**
+     * Normalizes a blacklist word so it folds the same way messages do.
+     */
+    public String normalizeWord(String word) {
+        NormalizedText out = new NormalizedText();
+        normalize(word, out);
+        return out.toString();
+    }
+    
+    private void normalize(CharSequence text, NormalizedText out) {
+        int length = text.length();
+        out.reset(length, length);
+        
+        // Length of the word token the last emitted char belongs to
+        int tokenLength = 0;
+        // The last emitted letter was joined on through padding other than whitespace
+        boolean symbolJoined = false;
+        boolean joined = false;
+        
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            byte type = kind[c];
+            
+            if (type == DROP) {
+                i++;
+                continue;
+            }
+            
+            if (type == PAD) {
+                if (tokenLength == 1) {
+                    // Padding between single letters: "b.a.d" -> "bad", "b a d" -> "bad"
+                    int next = skipPadding(text, i);
+                    if (next < length && isSingleLetter(text, next)) {
+                        boolean whitespace = isWhitespaceGap(text, i, next);
+                        // Whitespace only joins runs spaced out by whitespace alone, so the
+                        // single-letter words in "u r a b.a.d" stay apart from "bad"
+                        if (!whitespace || !symbolJoined && !continuesWithSymbolPadding(text, next)) {
+                            symbolJoined = !whitespace;
+                            joined = true;
+                            tokenLength = 0;
+                            i = next;
+                            continue;
+                        }
+                    }
+                }
+                out.append(fold[c], i);
+                tokenLength = 0;
+                symbolJoined = false;
+                i++;
+                continue;
+            }
+            
+            char folded = fold[c];
+            if (type == LEET && !Character.isDigit(c) && !continuesWord(text, i + 1)) {
+                // Digits always fold ("h3ll0"); symbols only inside a word, so "bad!" keeps its '!'
+                folded = Character.toLowerCase(c);
+            }
+            out.append(folded, i);
+            tokenLength = BlacklistAutomaton.isWordChar(folded) ? tokenLength + 1 : 0;
+            if (!joined) {
+                symbolJoined = false;
+            }
+            joined = false;
+            i++;
+        }
+    }
+    
+    private boolean isWhitespaceGap(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (kind[c] == PAD && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // True when the single letter at index is followed by non-whitespace padding and another single letter
+    private boolean continuesWithSymbolPadding(CharSequence text, int index) {
+        int gap = index + 1;
+        while (gap < text.length() && kind[text.charAt(gap)] == DROP) {
+            gap++;
+        }
+        if (gap >= text.length() || kind[text.charAt(gap)] != PAD) {
+            return false;
+        }
+        int next = skipPadding(text, gap);
+        return next < text.length() && !isWhitespaceGap(text, gap, next) && isSingleLetter(text, next);
+    }
+    
+    private boolean continuesWord(CharSequence text, int index) {
+        while (index < text.length() && kind[text.charAt(index)] == DROP) {
+            index++;
+        }
+        if (index >= text.length()) {
+            return false;
+        }
+        char next = text.charAt(index);
+        return kind[next] == LEET || Character.isLetterOrDigit(next);
+    }
+    
+    private int skipPadding(CharSequence text, int index) {
+        while (index < text.length() && (kind[text.charAt(index)] == PAD || kind[text.charAt(index)] == DROP)) {
+            index++;
+        }
+        return index;
+    }
+    
+    // True when the char at index is a word char standing alone between padding
+    private boolean isSingleLetter(CharSequence text, int index) {
+        if (!BlacklistAutomaton.isWordChar(fold[text.charAt(index)])) {
+            return false;
+        }
+        
+        int next = index + 1;
+        while (next < text.length() && kind[text.charAt(next)] == DROP) {
+            next++;
+        }
+        return next >= text.length() || kind[text.charAt(next)] == PAD
+            || !BlacklistAutomaton.isWordChar(fold[text.charAt(next)]);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.chatplus.integrations;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.managers.GroupCacheManager;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import net.luckperms.api.model.user.User;
+
+import java.util.UUID;
+
+public class LuckPermsIntegration {
+    
+    private final ChatPlusPlugin plugin;
+    private final GroupCacheManager groupCache;
+    private final LuckPerms luckPerms;
+    private EventSubscription<UserDataRecalculateEvent> subscription;
+    
+    public LuckPermsIntegration(ChatPlusPlugin plugin, GroupCacheManager groupCache) {
+        this.plugin = plugin;
+        this.groupCache = groupCache;
+        this.luckPerms = LuckPermsProvider.get();
+    }
+    
+    public void register() {
+        // Group or permission changes trigger a recalculation; keep the cache in step
+        this.subscription = luckPerms.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class, event -> {
+            UUID playerId = event.getUser().getUniqueId();
+            groupCache.update(playerId, event.getUser().getPrimaryGroup());
+            if (plugin.getPermissionCacheManager() != null) {
+                plugin.getPermissionCacheManager().invalidate(playerId);
+            }
+        });
+    }
+    
+    public void unregister() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+    
+    public String getPrimaryGroup(UUID playerId) {
+        User user = luckPerms.getUserManager().getUser(playerId);
+        return user != null ? user.getPrimaryGroup() : null;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.chatplus.integrations;
 
 import com.chatplus.ChatPlusPlugin;
+import me.clip.placeholderapi.PlaceholderAPI;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.entity.Player;
 
@@ -32,6 +33,18 @@ public class PlaceholderAPIIntegration extends PlaceholderExpansion {
         return true;
     }
     
+    /**
+     * Relational placeholders (%rel_...%) depend on who is reading, so text that
+     * contains them has to be rendered per viewer.
+     */
+    public boolean hasRelationalPlaceholders(String text) {
+        return text.contains("%rel_");
+    }
+    
+    public String setRelationalPlaceholders(Player sender, Player viewer, String text) {
+        return PlaceholderAPI.setRelationalPlaceholders(sender, viewer, text);
+    }
+    
     @Override
     public String onPlaceholderRequest(Player player, String params) {
         if (player == null) {
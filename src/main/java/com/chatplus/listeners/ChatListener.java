@@ -1,21 +1,32 @@
 package com.chatplus.listeners;
 
 import com.chatplus.ChatPlusPlugin;
+import com.chatplus.chat.ChatContext;
+import com.chatplus.chat.ComponentBroadcast;
+import com.chatplus.integrations.PlaceholderAPIIntegration;
+import com.chatplus.metrics.ChatMetrics;
+import com.chatplus.metrics.LatencyHistogram;
 import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
-import org.bukkit.event.player.PlayerMoveEvent;
-import org.bukkit.event.player.PlayerQuitEvent;
 
+/**
+ * Chat handling through the legacy AsyncPlayerChatEvent, used on Spigot or when
+ * async-chat.enabled is off. Paper servers use {@link PaperChatListener}.
+ */
 public class ChatListener implements Listener {
     
     private final ChatPlusPlugin plugin;
+    private final LatencyHistogram totalTimer;
+    private final LatencyHistogram broadcastTimer;
     
     public ChatListener(ChatPlusPlugin plugin) {
         this.plugin = plugin;
+        this.totalTimer = plugin.getChatMetrics().timer(ChatMetrics.TOTAL);
+        this.broadcastTimer = plugin.getChatMetrics().timer(ChatMetrics.BROADCAST);
     }
     
     @EventHandler(priority = EventPriority.HIGH)
@@ -24,91 +35,56 @@ public class ChatListener implements Listener {
             return;
         }
         
-        Player player = event.getPlayer();
-        String message = event.getMessage();
-        
-        // Check if chat is toggled off
-        if (!plugin.getChatToggleManager().canPlayerChat(player)) {
-            event.setCancelled(true);
-            player.sendMessage(plugin.getChatToggleManager().getMutedMessage());
+        boolean timed = plugin.getConfigManager().getSnapshot().isMetricsEnabled();
+        if (!timed) {
+            handleChat(event, false);
             return;
         }
         
-        // Check for filters first
-        if (plugin.getFilterManager().shouldFilterMessage(player, message)) {
-            event.setCancelled(true);
-            player.sendMessage(plugin.getFilterManager().getFilteredMessage(player));
-            return;
-        }
+        long start = System.nanoTime();
+        handleChat(event, true);
+        totalTimer.record(System.nanoTime() - start);
+    }
+    
+    private void handleChat(AsyncPlayerChatEvent event, boolean timed) {
+        Player player = event.getPlayer();
         
-        // Check for duplicate messages
-        if (plugin.getCooldownManager().isDuplicateMessage(player, message)) {
+        // Toggle, filters, duplicate, cooldown and rewrites, in the configured order
+        ChatContext context = new ChatContext(player, event.getMessage());
+        if (!plugin.getChatPipeline().process(context)) {
             event.setCancelled(true);
-            player.sendMessage(plugin.getConfigManager().getDuplicateMessage()
-                .replace("{player}", player.getName()));
-            return;
-        }
-        
-        // Check cooldown
-        if (plugin.getCooldownManager().isOnCooldown(player)) {
-            if (plugin.getConfigManager().isSoftThrottleEnabled()) {
-                // Soft throttle: cancel event but don't notify player
-                event.setCancelled(true);
-                plugin.getLogger().info("Soft-throttled message from " + player.getName() + ": " + message);
-                return;
-            } else {
-                // Hard throttle: cancel and notify player
-                event.setCancelled(true);
-                player.sendMessage(plugin.getCooldownManager().getCooldownMessage(player));
-                return;
+            plugin.getModerationLogManager().record(player, context.getCancelReason(), context.getOriginalMessage());
+            if (context.getFeedback() != null) {
+                player.sendMessage(context.getFeedback());
             }
+            return;
         }
+        plugin.getCooldownManager().messageAccepted(player, context.getOriginalMessage());
         
-        // Process message through filters (profanity replacement, clickable actions)
-        String processedMessage = plugin.getFilterManager().processMessage(player, message);
-        
-        // Replace emojis
-        processedMessage = plugin.getEmojiManager().replaceEmojis(player, processedMessage);
-        
-        // Check if message contains clickable actions
-        if (containsClickableActions(processedMessage)) {
+        TextComponent component = context.getComponent();
+        if (component != null) {
             // Cancel the original event and send custom formatted message
             event.setCancelled(true);
             
-            // Create clickable component
-            TextComponent component = plugin.getFilterManager().createClickableComponent(processedMessage);
-            
-            // Send to all players who can see the chat
+            // Send to all players who can see the chat, building the message once
+            long start = timed ? System.nanoTime() : 0;
             String format = event.getFormat();
             String finalMessage = String.format(format, player.getDisplayName(), "");
             
-            for (Player recipient : event.getRecipients()) {
-                TextComponent finalComponent = new TextComponent(finalMessage);
-                finalComponent.addExtra(component);
-                recipient.spigot().sendMessage(finalComponent);
+            PlaceholderAPIIntegration placeholders = plugin.getPlaceholderIntegration();
+            if (placeholders != null && placeholders.hasRelationalPlaceholders(finalMessage)) {
+                ComponentBroadcast.send(finalMessage, component, event.getRecipients(),
+                    viewer -> placeholders.setRelationalPlaceholders(player, viewer, finalMessage));
+            } else {
+                ComponentBroadcast.send(finalMessage, component, event.getRecipients());
+            }
+            
+            if (timed) {
+                broadcastTimer.record(System.nanoTime() - start);
             }
         } else {
             // Set the processed message for normal chat
-            event.setMessage(processedMessage);
+            event.setMessage(context.getMessage());
         }
-        
-        // Set cooldown for next message (use length-based if configured)
-        plugin.getCooldownManager().setCooldown(player, message);
-    }
-    
-    private boolean containsClickableActions(String message) {
-        return message.matches(".*:[^:]+:.*");
-    }
-    
-    @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
-        // This is handled in the CooldownManager when checking cooldowns
-        // We don't need to do anything here as movement reset is checked on demand
-    }
-    
-    @EventHandler
-    public void onPlayerQuit(PlayerQuitEvent event) {
-        // Clean up cooldown when player leaves
-        plugin.getCooldownManager().removeCooldown(event.getPlayer());
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.chatplus.listeners;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.chat.ChatContext;
+import com.chatplus.chat.ViewerCachingRenderer;
+import com.chatplus.metrics.ChatMetrics;
+import com.chatplus.metrics.LatencyHistogram;
+import io.papermc.paper.event.player.AsyncChatEvent;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+/**
+ * Chat handling through Paper's AsyncChatEvent. The processed message is built
+ * once and handed to Paper, which delivers it to the viewers through a caching
+ * renderer; the event is only cancelled when a stage rejects the message.
+ */
+public class PaperChatListener implements Listener {
+    
+    private final ChatPlusPlugin plugin;
+    private final LatencyHistogram totalTimer;
+    private final LatencyHistogram broadcastTimer;
+    
+    public PaperChatListener(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+        this.totalTimer = plugin.getChatMetrics().timer(ChatMetrics.TOTAL);
+        this.broadcastTimer = plugin.getChatMetrics().timer(ChatMetrics.BROADCAST);
+    }
+    
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onAsyncChat(AsyncChatEvent event) {
+        if (!plugin.getConfigManager().getSnapshot().isMetricsEnabled()) {
+            handleChat(event, false);
+            return;
+        }
+        
+        long start = System.nanoTime();
+        handleChat(event, true);
+        totalTimer.record(System.nanoTime() - start);
+    }
+    
+    private void handleChat(AsyncChatEvent event, boolean timed) {
+        Player player = event.getPlayer();
+        String message = PlainTextComponentSerializer.plainText().serialize(event.message());
+        
+        // Toggle, filters, duplicate, cooldown and rewrites, in the configured order
+        ChatContext context = new ChatContext(player, message);
+        if (!plugin.getChatPipeline().process(context)) {
+            event.setCancelled(true);
+            plugin.getModerationLogManager().record(player, context.getCancelReason(), context.getOriginalMessage());
+            if (context.getFeedback() != null) {
+                player.sendMessage(context.getFeedback());
+            }
+            return;
+        }
+        plugin.getCooldownManager().messageAccepted(player, context.getOriginalMessage());
+        
+        long start = timed ? System.nanoTime() : 0;
+        TextComponent component = context.getComponent();
+        if (component != null) {
+            // Clickable messages become a native component, built once for every viewer
+            event.message(GsonComponentSerializer.gson().deserialize(ComponentSerializer.toString(component)));
+        } else if (!context.getMessage().equals(message)) {
+            event.message(Component.text(context.getMessage()));
+        }
+        
+        event.renderer(ViewerCachingRenderer.wrap(event.renderer()));
+        if (timed) {
+            broadcastTimer.record(System.nanoTime() - start);
+        }
+    }
+}
\ No newline at end of file
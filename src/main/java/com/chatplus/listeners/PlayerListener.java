@@ -0,0 +1,82 @@
+package com.chatplus.listeners;
+
+import com.chatplus.ChatPlusPlugin;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+public class PlayerListener implements Listener {
+    
+    private final ChatPlusPlugin plugin;
+    
+    public PlayerListener(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        trackMovement(event.getPlayer(), event.getFrom(), event.getTo());
+    }
+    
+    // Teleports have their own handler list, so the move handler never sees them
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        trackMovement(event.getPlayer(), event.getFrom(), event.getTo());
+    }
+    
+    // Respawns are not teleports either
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        trackMovement(event.getPlayer(), event.getPlayer().getLocation(), event.getRespawnLocation());
+    }
+    
+    private void trackMovement(Player player, Location from, Location to) {
+        if (to == null || from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+            && from.getBlockZ() == to.getBlockZ() && from.getWorld() == to.getWorld()) {
+            return;
+        }
+        if (!plugin.getConfigManager().isCooldownEnabled() || !plugin.getConfigManager().isMovementResetEnabled()) {
+            return;
+        }
+        
+        if (from.getWorld() != to.getWorld()) {
+            plugin.getCooldownManager().markMoved(player.getUniqueId());
+        } else {
+            plugin.getCooldownManager().trackMovement(player.getUniqueId(),
+                from.getBlockX(), from.getBlockY(), from.getBlockZ(), to.getBlockX(), to.getBlockY(), to.getBlockZ());
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Resolve the group and permissions once so chat never has to ask the permission plugin
+        plugin.getGroupCacheManager().refresh(event.getPlayer());
+        plugin.getPermissionCacheManager().refresh(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        // Permission plugins may grant nodes per world
+        plugin.getPermissionCacheManager().refresh(event.getPlayer());
+        // Catches any world change the events above did not report
+        if (plugin.getConfigManager().isMovementResetEnabled()) {
+            plugin.getCooldownManager().markMoved(event.getPlayer().getUniqueId());
+        }
+    }
+    
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        // Keeps the cooldown while state is persisted, otherwise cleans it up
+        plugin.getCooldownManager().playerQuit(event.getPlayer());
+        plugin.getGroupCacheManager().invalidate(event.getPlayer().getUniqueId());
+        plugin.getPermissionCacheManager().invalidate(event.getPlayer().getUniqueId());
+    }
+}
\ No newline at end of file
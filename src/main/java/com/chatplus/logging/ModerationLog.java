@@ -0,0 +1,254 @@
+package com.chatplus.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moderation log sink. Chat threads hand records to a bounded ring buffer and
+ * return; one writer thread drains it in batches into moderation.log, which is
+ * rotated once it reaches the size limit. Rotated files are gzipped and only the
+ * newest few are kept.
+ */
+public final class ModerationLog {
+    
+    private static final String FILE_NAME = "moderation.log";
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+    private static final long FULL_PARK_NANOS = 100_000L;
+    
+    private static final DateTimeFormatter LINE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final Path directory;
+    private final RingBuffer<Entry> buffer;
+    private final boolean blockWhenFull;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Logger logger;
+    private final Thread writer;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private volatile boolean running = true;
+    
+    // Null after a failed rotation until the file could be opened again
+    private BufferedWriter out;
+    private long fileBytes;
+    
+    public ModerationLog(Path directory, int capacity, boolean blockWhenFull, long maxFileBytes, int maxFiles,
+                         Logger logger) throws IOException {
+        this.directory = directory;
+        this.buffer = new RingBuffer<>(capacity);
+        this.blockWhenFull = blockWhenFull;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.logger = logger;
+        
+        Files.createDirectories(directory);
+        openFile();
+        
+        this.writer = new Thread(this::run, "ChatPlus-ModerationLog");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * Queues a record. When the buffer is full the record is dropped and counted, or,
+     * with the block policy, the calling thread waits for the writer to make room.
+     */
+    public void record(UUID playerId, String playerName, String action, String message) {
+        Entry entry = new Entry(System.currentTimeMillis(), playerId, playerName, action, message);
+        while (!buffer.offer(entry)) {
+            // The writer may be idling; get it draining
+            LockSupport.unpark(writer);
+            if (!blockWhenFull || !running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+    
+    public long getDropped() {
+        return dropped.sum();
+    }
+    
+    public long getWritten() {
+        return written.sum();
+    }
+    
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+    
+    private void run() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            // Read the flag before draining so nothing queued before close is missed
+            boolean stopping = !running;
+            
+            for (Entry entry; batch.size() < MAX_BATCH && (entry = buffer.poll()) != null; ) {
+                batch.add(entry);
+            }
+            
+            if (batch.isEmpty()) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            
+            try {
+                write(batch, line);
+            } catch (IOException e) {
+                dropped.add(batch.size());
+                logger.log(Level.WARNING, "Could not write " + FILE_NAME + ": " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+    
+    private void write(List<Entry> batch, StringBuilder line) throws IOException {
+        if (out == null) {
+            openFile();
+        }
+        for (Entry entry : batch) {
+            line.setLength(0);
+            line.append(LINE_TIME.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.time), ZoneId.systemDefault())))
+                .append(" [").append(entry.action).append("] ")
+                .append(entry.playerName).append(" (").append(entry.playerId).append("): ")
+                .append(entry.message)
+                .append('\n');
+            out.append(line);
+            fileBytes += utf8Length(line);
+        }
+        out.flush();
+        written.add(batch.size());
+        
+        if (fileBytes >= maxFileBytes) {
+            // The batch is already written; a failed rotation must not count it as dropped
+            try {
+                rotate();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not rotate " + FILE_NAME + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // A surrogate pair is 4 bytes, 2 per half
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+    
+    private void openFile() throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+    
+    // Moves the current file aside, compresses it and drops the oldest archives
+    private void rotate() throws IOException {
+        out.close();
+        out = null;
+        
+        Path current = directory.resolve(FILE_NAME);
+        String stamp = FILE_TIME.format(LocalDateTime.now());
+        Path archive = directory.resolve("moderation-" + stamp + ".log.gz");
+        for (int i = 1; Files.exists(archive); i++) {
+            archive = directory.resolve("moderation-" + stamp + "-" + i + ".log.gz");
+        }
+        
+        try {
+            try (InputStream in = Files.newInputStream(current);
+                 OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(archive))) {
+                in.transferTo(gzip);
+            } catch (IOException e) {
+                // Keep writing to the uncompressed file rather than leaving half an archive
+                Files.deleteIfExists(archive);
+                throw e;
+            }
+            Files.delete(current);
+        } finally {
+            // Reopen even when compressing failed, so later batches are not all dropped
+            openFile();
+        }
+        
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "moderation-*.log.gz")) {
+            files.forEach(archives::add);
+        }
+        // Timestamped names sort oldest first
+        archives.sort(null);
+        for (int i = 0; i < archives.size() - maxFiles; i++) {
+            Files.deleteIfExists(archives.get(i));
+        }
+    }
+    
+    /**
+     * Writes everything still queued and closes the file.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not close " + FILE_NAME + ": " + e.getMessage());
+        }
+    }
+    
+    private static final class Entry {
+        final long time;
+        final UUID playerId;
+        final String playerName;
+        final String action;
+        final String message;
+        
+        Entry(long time, UUID playerId, String playerName, String action, String message) {
+            this.time = time;
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.action = action;
+            this.message = message;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.chatplus.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer, on a fixed array
+ * of slots. Each slot has a sequence number telling producers and the consumer
+ * whose turn it is, so neither side takes a lock or allocates.
+ */
+final class RingBuffer<T> {
+    
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * Adds the item, or returns false when the buffer is full.
+     */
+    boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[index] = item;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+    
+    /**
+     * Takes the oldest item, or null when there is none. Only one thread may poll.
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        
+        T item = (T) items[index];
+        items[index] = null;
+        sequences.set(index, position + mask + 1);
+        head.lazySet(position + 1);
+        return item;
+    }
+    
+    int capacity() {
+        return mask + 1;
+    }
+}
\ No newline at end of file
@@ -3,14 +3,18 @@ package com.chatplus.managers;
 import com.chatplus.ChatPlusPlugin;
 import org.bukkit.entity.Player;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChatToggleManager {
     
     private final ChatPlusPlugin plugin;
-    private final Set<String> mutedWorlds = new HashSet<>();
-    private boolean globalChatMuted = false;
+    private final Set<String> mutedWorlds = ConcurrentHashMap.newKeySet();
+    private volatile boolean globalChatMuted = false;
+    // When the mutes last changed here or on a synced server
+    private volatile long mutesChangedAt;
     
     public ChatToggleManager(ChatPlusPlugin plugin) {
         this.plugin = plugin;
@@ -22,6 +26,7 @@ public class ChatToggleManager {
     
     public void setChatMuted(boolean muted) {
         this.globalChatMuted = muted;
+        mutesChanged();
     }
     
     public boolean isWorldMuted(String world) {
@@ -34,11 +39,58 @@ public class ChatToggleManager {
         } else {
             mutedWorlds.remove(world.toLowerCase());
         }
+        mutesChanged();
+    }
+    
+    /**
+     * Takes mutes from another server if they changed after ours did. Returns true when applied.
+     */
+    public synchronized boolean applyMutes(boolean globalMuted, Collection<String> worlds, long changedAt) {
+        if (changedAt <= mutesChangedAt) {
+            return false;
+        }
+        
+        restoreMutes(globalMuted, worlds);
+        mutesChangedAt = changedAt;
+        PersistenceManager persistence = plugin.getPersistenceManager();
+        if (persistence != null) {
+            persistence.markMutesDirty();
+        }
+        return true;
+    }
+    
+    public long getMutesChangedAt() {
+        return mutesChangedAt;
+    }
+    
+    public Set<String> getMutedWorlds() {
+        return Collections.unmodifiableSet(mutedWorlds);
+    }
+    
+    /**
+     * Puts back mutes saved before a restart.
+     */
+    public void restoreMutes(boolean globalMuted, Collection<String> worlds) {
+        this.globalChatMuted = globalMuted;
+        mutedWorlds.clear();
+        mutedWorlds.addAll(worlds);
+    }
+    
+    private void mutesChanged() {
+        mutesChangedAt = System.currentTimeMillis();
+        PersistenceManager persistence = plugin.getPersistenceManager();
+        if (persistence != null) {
+            persistence.markMutesDirty();
+        }
+        SyncManager sync = plugin.getSyncManager();
+        if (sync != null) {
+            sync.markMutesDirty();
+        }
     }
     
     public boolean canPlayerChat(Player player) {
         // Check bypass permission first
-        if (player.hasPermission("chatplus.bypass.toggle")) {
+        if (plugin.getPermissionCacheManager().has(player, PermissionCacheManager.BYPASS_TOGGLE)) {
             return true;
         }
         
@@ -0,0 +1,123 @@
+package com.chatplus.managers;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.config.ConfigManager;
+import com.chatplus.config.ConfigSnapshot;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the plugin folder and reloads a YAML file once it has been saved. Only
+ * the changed files are parsed again and only what depends on them is rebuilt,
+ * all on the watcher thread; the new structures are swapped in as they are done.
+ * Runtime state such as cooldowns and mutes is never touched.
+ */
+public class ConfigWatchManager {
+    
+    private final ChatPlusPlugin plugin;
+    private WatchService watcher;
+    private Thread thread;
+    
+    public ConfigWatchManager(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+        
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!config.isAutoReloadEnabled()) {
+            return;
+        }
+        
+        Path folder = plugin.getDataFolder().toPath();
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not watch the config files, use /chatplus reload instead: " + e.getMessage());
+            close();
+            return;
+        }
+        
+        WatchService service = watcher;
+        long delay = config.getAutoReloadDelayMillis();
+        this.thread = new Thread(() -> run(service, delay), "ChatPlus-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void run(WatchService service, long delay) {
+        Set<String> changed = new LinkedHashSet<>();
+        try {
+            while (true) {
+                collect(service.take(), changed);
+                // Editors often write a file in several steps; wait until it settles
+                for (WatchKey key; (key = service.poll(delay, TimeUnit.MILLISECONDS)) != null; ) {
+                    collect(key, changed);
+                }
+                
+                if (!changed.isEmpty()) {
+                    apply(changed);
+                    changed.clear();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+    
+    private void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(ConfigManager.FILES);
+            } else if (ConfigManager.FILES.contains(event.context().toString())) {
+                changed.add(event.context().toString());
+            }
+        }
+        key.reset();
+    }
+    
+    private void apply(Set<String> changed) {
+        try {
+            Set<String> reloaded = plugin.getConfigManager().reloadFiles(changed);
+            if (reloaded.isEmpty()) {
+                return;
+            }
+            plugin.applyConfigChanges(reloaded);
+            plugin.getLogger().info("Reloaded " + String.join(", ", reloaded));
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Error reloading " + String.join(", ", changed) + ": " + e.getMessage());
+        }
+    }
+    
+    public void shutdown() {
+        close();
+        if (thread != null) {
+            try {
+                thread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+    
+    private void close() {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not stop watching the config files: " + e.getMessage());
+        }
+        watcher = null;
+    }
+}
\ No newline at end of file
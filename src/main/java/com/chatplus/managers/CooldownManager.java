@@ -1,27 +1,96 @@
 package com.chatplus.managers;
 
 import com.chatplus.ChatPlusPlugin;
-import org.bukkit.Location;
-import org.bukkit.configuration.ConfigurationSection;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.config.CooldownRules;
+import com.chatplus.config.TokenBucketSpec;
+import com.chatplus.state.Hashing;
+import com.chatplus.state.PlayerStateTable;
+import com.chatplus.state.SimHash;
+import com.chatplus.state.TokenBuckets;
 import org.bukkit.entity.Player;
 
-import java.time.LocalTime;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 public class CooldownManager {
     
     private final ChatPlusPlugin plugin;
-    private final Map<UUID, Long> cooldowns;
-    private final Map<UUID, String> lastMessages;
-    private final Map<UUID, Location> lastLocations;
+    // Last message time, last message hash and position per player
+    private final PlayerStateTable states;
+    // Token bucket per player when cooldowns.yml type is token-bucket
+    private final TokenBuckets buckets = new TokenBuckets();
+    private volatile CooldownRules rules;
     
     public CooldownManager(ChatPlusPlugin plugin) {
         this.plugin = plugin;
-        this.cooldowns = new HashMap<>();
-        this.lastMessages = new HashMap<>();
-        this.lastLocations = new HashMap<>();
+        this.states = new PlayerStateTable();
+        reload();
+    }
+    
+    public void reload() {
+        // Compile now so invalid ranges are reported at load, not on the first message
+        getRules();
+    }
+    
+    /**
+     * Checks the cooldown and, if the player is off cooldown, reserves the next
+     * window in the same atomic step. Returns false when the message must be held back.
+     * The message itself is only remembered once the whole pipeline accepts it, see
+     * {@link #messageAccepted(Player, String)}.
+     */
+    public boolean tryAcquireCooldown(Player player, String message) {
+        if (!plugin.getConfigManager().isCooldownEnabled()) {
+            return true;
+        }
+        
+        boolean bypass = plugin.getPermissionCacheManager().has(player, PermissionCacheManager.BYPASS_COOLDOWN);
+        if (plugin.getConfigManager().getSnapshot().isTokenBucketEnabled()) {
+            return tryConsumeTokens(player, message, bypass);
+        }
+        
+        long cooldownTime = bypass ? 0 : getEffectiveCooldown(player) * 1000L;
+        
+        boolean acquired = states.tryAcquire(player.getUniqueId(), System.currentTimeMillis(), cooldownTime,
+            plugin.getConfigManager().isMovementResetEnabled());
+        if (acquired) {
+            stateChanged(player.getUniqueId());
+        }
+        return acquired;
+    }
+    
+    private boolean tryConsumeTokens(Player player, String message, boolean bypass) {
+        if (bypass) {
+            return true;
+        }
+        
+        CooldownRules current = getRules();
+        TokenBucketSpec bucket = current.resolveBucket(getPlayerGroup(player), player.getWorld().getName());
+        return buckets.tryConsume(player.getUniqueId(), System.currentTimeMillis(), getMessageCost(message),
+            bucket.getCapacity(), bucket.getRefillPerSecond());
+    }
+    
+    /**
+     * Called by the chat listeners once no stage cancelled the message. Records it as
+     * the player's last message, so the duplicate check works whatever the stage order
+     * and whether or not cooldowns are enabled, and blocked messages never count as
+     * something the player already said.
+     */
+    public void messageAccepted(Player player, String message) {
+        if (!plugin.getConfigManager().isCooldownEnabled() && !plugin.getConfigManager().isDuplicateCheckEnabled()) {
+            return;
+        }
+        
+        states.record(player.getUniqueId(), System.currentTimeMillis(), Hashing.hash64(message), fingerprint(message));
+        stateChanged(player.getUniqueId());
+    }
+    
+    /**
+     * Tokens a message costs in token-bucket mode.
+     */
+    public double getMessageCost(String message) {
+        return getRules().messageCost(message.length(),
+            plugin.getEmojiManager().countEmojiCodes(message),
+            plugin.getFilterManager().countClickableActions(message));
     }
     
     public boolean isOnCooldown(Player player) {
@@ -29,28 +98,28 @@ public class CooldownManager {
             return false;
         }
         
-        if (player.hasPermission("chatplus.bypass.cooldown")) {
+        if (plugin.getPermissionCacheManager().has(player, PermissionCacheManager.BYPASS_COOLDOWN)) {
             return false;
         }
         
         UUID playerId = player.getUniqueId();
         long currentTime = System.currentTimeMillis();
         
-        if (!cooldowns.containsKey(playerId)) {
-            return false;
+        if (plugin.getConfigManager().getSnapshot().isTokenBucketEnabled()) {
+            return getTokenWaitMillis(player, currentTime) > 0;
         }
         
         // Check movement reset
-        if (plugin.getConfigManager().isMovementResetEnabled()) {
-            Location lastLoc = lastLocations.get(playerId);
-            if (lastLoc != null && !lastLoc.equals(player.getLocation())) {
-                cooldowns.remove(playerId);
-                lastLocations.put(playerId, player.getLocation());
-                return false;
-            }
+        if (plugin.getConfigManager().isMovementResetEnabled() && states.resetIfMoved(playerId)) {
+            stateChanged(playerId);
+            return false;
+        }
+        
+        long lastMessageTime = states.getLastMessageTime(playerId);
+        if (lastMessageTime == 0) {
+            return false;
         }
         
-        long lastMessageTime = cooldowns.get(playerId);
         long cooldownTime = getEffectiveCooldown(player) * 1000L;
         
         return (currentTime - lastMessageTime) < cooldownTime;
@@ -61,14 +130,29 @@ public class CooldownManager {
             return false;
         }
         
-        if (player.hasPermission("chatplus.bypass.duplicate")) {
+        if (plugin.getPermissionCacheManager().has(player, PermissionCacheManager.BYPASS_DUPLICATE)) {
             return false;
         }
         
         UUID playerId = player.getUniqueId();
-        String lastMessage = lastMessages.get(playerId);
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        // Messages older than the window no longer count, so "gg" is fine again later
+        long since = System.currentTimeMillis() - config.getDuplicateWindowMillis();
+        if (states.isLastMessage(playerId, Hashing.hash64(message), since)) {
+            return true;
+        }
         
-        return message.equals(lastMessage);
+        return config.getDuplicateHistory() > 0 && states.isNearDuplicate(playerId, fingerprint(message),
+            config.getDuplicateHistory(), config.getDuplicateMaxDistance(), since);
+    }
+    
+    // SimHash of the message, or 0 when only exact repeats are checked
+    private long fingerprint(String message) {
+        if (plugin.getConfigManager().getSnapshot().getDuplicateHistory() == 0) {
+            return 0;
+        }
+        
+        return SimHash.cached(message);
     }
     
     public long getRemainingCooldown(Player player) {
@@ -76,14 +160,18 @@ public class CooldownManager {
             return 0;
         }
         
-        UUID playerId = player.getUniqueId();
         long currentTime = System.currentTimeMillis();
         
-        if (!cooldowns.containsKey(playerId)) {
+        if (plugin.getConfigManager().getSnapshot().isTokenBucketEnabled()) {
+            long wait = getTokenWaitMillis(player, currentTime);
+            return wait > 0 ? (wait + 999) / 1000L : 0;
+        }
+        
+        long lastMessageTime = states.getLastMessageTime(player.getUniqueId());
+        if (lastMessageTime == 0) {
             return 0;
         }
         
-        long lastMessageTime = cooldowns.get(playerId);
         long cooldownTime = getEffectiveCooldown(player) * 1000L;
         long elapsed = currentTime - lastMessageTime;
         
@@ -99,155 +187,145 @@ public class CooldownManager {
             return;
         }
         
-        UUID playerId = player.getUniqueId();
-        cooldowns.put(playerId, System.currentTimeMillis());
-        lastMessages.put(playerId, message);
-        lastLocations.put(playerId, player.getLocation());
+        states.record(player.getUniqueId(), System.currentTimeMillis(), Hashing.hash64(message), fingerprint(message));
+        stateChanged(player.getUniqueId());
+    }
+    
+    // Wait until a message with only the base cost would go through
+    private long getTokenWaitMillis(Player player, long now) {
+        CooldownRules current = getRules();
+        TokenBucketSpec bucket = current.resolveBucket(getPlayerGroup(player), player.getWorld().getName());
+        return buckets.getWaitMillis(player.getUniqueId(), now, current.messageCost(0, 0, 0),
+            bucket.getCapacity(), bucket.getRefillPerSecond());
+    }
+    
+    /**
+     * Tokens the player has left, or -1 when token-bucket mode is off.
+     */
+    public double getTokens(Player player) {
+        if (!plugin.getConfigManager().getSnapshot().isTokenBucketEnabled()) {
+            return -1;
+        }
+        
+        TokenBucketSpec bucket = getRules().resolveBucket(getPlayerGroup(player), player.getWorld().getName());
+        return buckets.getTokens(player.getUniqueId(), System.currentTimeMillis(),
+            bucket.getCapacity(), bucket.getRefillPerSecond());
+    }
+    
+    /**
+     * Called when the player leaves. While state is persisted the row is kept, so a
+     * restart or quick rejoin does not hand out a fresh window; idle rows are pruned
+     * after persistence.max-age instead.
+     */
+    public void playerQuit(Player player) {
+        PersistenceManager persistence = plugin.getPersistenceManager();
+        if (persistence != null && persistence.isActive()) {
+            return;
+        }
+        states.remove(player.getUniqueId());
+        buckets.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Drops players whose last message is older than persistence.max-age, including
+     * players who left and rows received from other servers.
+     */
+    public void pruneIdle() {
+        long cutoff = System.currentTimeMillis() - plugin.getConfigManager().getSnapshot().getPersistenceMaxAgeMillis();
+        states.removeOlderThan(cutoff, buckets::remove);
     }
     
     public void removeCooldown(Player player) {
-        UUID playerId = player.getUniqueId();
-        cooldowns.remove(playerId);
-        lastMessages.remove(playerId);
-        lastLocations.remove(playerId);
+        states.remove(player.getUniqueId());
+        buckets.remove(player.getUniqueId());
+        stateChanged(player.getUniqueId());
     }
     
     public void clearAllCooldowns() {
-        cooldowns.clear();
-        lastMessages.clear();
-        lastLocations.clear();
+        states.clear();
+        buckets.clear();
     }
     
-    public long getEffectiveCooldown(Player player) {
-        long cooldown = plugin.getConfigManager().getDefaultCooldown();
-        
-        // Check group-based cooldowns
-        String group = getPlayerGroup(player);
-        if (group != null) {
-            ConfigurationSection groupSection = plugin.getConfigManager().getGroupCooldowns();
-            if (groupSection != null && groupSection.contains(group)) {
-                cooldown = groupSection.getLong(group, cooldown);
-            }
+    public int getTrackedPlayers() {
+        return states.size();
+    }
+    
+    public long getFootprintBytes() {
+        return states.footprintBytes();
+    }
+    
+    public PlayerStateTable getStates() {
+        return states;
+    }
+    
+    public TokenBuckets getBuckets() {
+        return buckets;
+    }
+    
+    // Queue the player's state to be saved and sent to the other servers
+    private void stateChanged(UUID playerId) {
+        PersistenceManager persistence = plugin.getPersistenceManager();
+        if (persistence != null) {
+            persistence.markDirty(playerId);
         }
-        
-        // Check world-based cooldowns
-        String world = player.getWorld().getName();
-        ConfigurationSection worldSection = plugin.getConfigManager().getWorldCooldowns();
-        if (worldSection != null && worldSection.contains(world)) {
-            cooldown = worldSection.getLong(world, cooldown);
+        SyncManager sync = plugin.getSyncManager();
+        if (sync != null) {
+            sync.markDirty(playerId);
         }
-        
-        // Check time-based cooldowns
-        ConfigurationSection timeSection = plugin.getConfigManager().getTimeBasedCooldowns();
-        if (timeSection != null) {
-            LocalTime now = LocalTime.now();
-            for (String timeRange : timeSection.getKeys(false)) {
-                if (isTimeInRange(now, timeRange)) {
-                    cooldown = timeSection.getLong(timeRange, cooldown);
-                    break;
-                }
-            }
+    }
+    
+    /**
+     * Called from the move listener when the player crosses into another block in
+     * the same world. Chat only ever reads the resulting moved flag.
+     */
+    public void trackMovement(UUID playerId, int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        if (states.trackMove(playerId, Hashing.packBlock(fromX, fromY, fromZ), Hashing.packBlock(toX, toY, toZ),
+            plugin.getConfigManager().getSnapshot().getMovementResetDistance())) {
+            stateChanged(playerId);
         }
-        
-        // Check length-based cooldowns
-        // This would be applied when processing a message
-        
-        return cooldown;
     }
     
-    public long getLengthBasedCooldown(Player player, String message) {
-        long baseCooldown = getEffectiveCooldown(player);
-        
-        ConfigurationSection lengthSection = plugin.getConfigManager().getLengthBasedCooldowns();
-        if (lengthSection != null) {
-            int messageLength = message.length();
-            
-            for (String lengthRange : lengthSection.getKeys(false)) {
-                if (isLengthInRange(messageLength, lengthRange)) {
-                    return lengthSection.getLong(lengthRange, baseCooldown);
-                }
-            }
+    /**
+     * Counts the player as moved no matter the distance, e.g. after a world change.
+     */
+    public void markMoved(UUID playerId) {
+        if (states.markMoved(playerId)) {
+            stateChanged(playerId);
         }
-        
-        return baseCooldown;
     }
     
-    public String getPlayerGroup(Player player) {
-        // Try LuckPerms first
-        if (plugin.getServer().getPluginManager().getPlugin("LuckPerms") != null) {
-            try {
-                net.luckperms.api.LuckPerms luckPerms = net.luckperms.api.LuckPermsProvider.get();
-                net.luckperms.api.model.user.User user = luckPerms.getUserManager().getUser(player.getUniqueId());
-                if (user != null) {
-                    return user.getPrimaryGroup();
-                }
-            } catch (Exception e) {
-                // LuckPerms not available or error occurred
-            }
+    public long getEffectiveCooldown(Player player) {
+        return getRules().resolve(getPlayerGroup(player), player.getWorld().getName(), System.currentTimeMillis());
+    }
+    
+    public long getLengthBasedCooldown(Player player, String message) {
+        return getRules().resolveLength(message.length(), getEffectiveCooldown(player));
+    }
+    
+    // Recompiled lazily whenever a reload publishes a new config generation
+    private CooldownRules getRules() {
+        CooldownRules current = rules;
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (current != null && current.getGeneration() == config.getGeneration()) {
+            return current;
         }
         
-        // Try Vault
-        if (plugin.getServer().getPluginManager().getPlugin("Vault") != null) {
-            try {
-                net.milkbowl.vault.permission.Permission permission = plugin.getServer().getServicesManager()
-                    .getRegistration(net.milkbowl.vault.permission.Permission.class).getProvider();
-                if (permission != null) {
-                    return permission.getPrimaryGroup(player);
-                }
-            } catch (Exception e) {
-                // Vault not available or error occurred
+        synchronized (this) {
+            current = rules;
+            if (current == null || current.getGeneration() != config.getGeneration()) {
+                current = CooldownRules.compile(config, plugin.getLogger());
+                rules = current;
             }
+            return current;
         }
-        
-        return "default";
     }
     
-    private boolean isTimeInRange(LocalTime time, String range) {
-        try {
-            String[] parts = range.split("-");
-            if (parts.length == 2) {
-                LocalTime start = LocalTime.parse(parts[0]);
-                LocalTime end = LocalTime.parse(parts[1]);
-                
-                if (start.isBefore(end)) {
-                    return !time.isBefore(start) && !time.isAfter(end);
-                } else {
-                    // Range crosses midnight
-                    return !time.isBefore(start) || !time.isAfter(end);
-                }
-            }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Invalid time range format: " + range);
-        }
-        return false;
-    }
-    
-    private boolean isLengthInRange(int length, String range) {
-        try {
-            if (range.contains("-")) {
-                String[] parts = range.split("-");
-                if (parts.length == 2) {
-                    int min = Integer.parseInt(parts[0]);
-                    int max = Integer.parseInt(parts[1]);
-                    return length >= min && length <= max;
-                }
-            } else if (range.startsWith(">")) {
-                int min = Integer.parseInt(range.substring(1));
-                return length > min;
-            } else if (range.startsWith("<")) {
-                int max = Integer.parseInt(range.substring(1));
-                return length < max;
-            }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Invalid length range format: " + range);
-        }
-        return false;
+    public String getPlayerGroup(Player player) {
+        return plugin.getGroupCacheManager().getGroup(player);
     }
     
     public String getCooldownMessage(Player player) {
         long remainingTime = getRemainingCooldown(player);
-        return plugin.getConfigManager().getCooldownMessage()
-                .replace("{time}", String.valueOf(remainingTime))
-                .replace("{player}", player.getName());
+        return plugin.getConfigManager().getMessage("cooldown", "time", remainingTime, "player", player.getName());
     }
 }
\ No newline at end of file
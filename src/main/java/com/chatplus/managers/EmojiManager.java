@@ -1,21 +1,18 @@
 package com.chatplus.managers;
 
 import com.chatplus.ChatPlusPlugin;
-import org.bukkit.configuration.ConfigurationSection;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.emoji.EmojiTrie;
 import org.bukkit.entity.Player;
 
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
-
 public class EmojiManager {
     
     private final ChatPlusPlugin plugin;
-    private Pattern wordBoundaryPattern;
+    private volatile EmojiTrie trie = EmojiTrie.EMPTY;
     
     public EmojiManager(ChatPlusPlugin plugin) {
         this.plugin = plugin;
-        updateWordBoundaryPattern();
+        reload();
     }
     
     public String replaceEmojis(Player player, String message) {
@@ -32,61 +29,34 @@ public class EmojiManager {
             return message;
         }
         
-        Map<String, String> emojiMappings = plugin.getConfigManager().getEmojiMappings();
-        if (emojiMappings.isEmpty()) {
+        EmojiTrie current = trie;
+        if (current.isEmpty()) {
             return message;
         }
         
-        String processedMessage = message;
-        
-        // Use replacement order if specified
-        List<String> replacementOrder = plugin.getConfigManager().getEmojiReplacementOrder();
-        if (!replacementOrder.isEmpty()) {
-            for (String code : replacementOrder) {
-                if (emojiMappings.containsKey(code)) {
-                    processedMessage = replaceEmoji(processedMessage, code, emojiMappings.get(code));
-                }
-            }
-        } else {
-            // Replace all emojis
-            for (Map.Entry<String, String> entry : emojiMappings.entrySet()) {
-                processedMessage = replaceEmoji(processedMessage, entry.getKey(), entry.getValue());
-            }
-        }
-        
-        return processedMessage;
-    }
-    
-    private String replaceEmoji(String message, String code, String emoji) {
-        if (plugin.getConfigManager().isWordBoundaryEnabled()) {
-            // Use word boundary regex for more precise replacement
-            String regex = "\\b" + Pattern.quote(code) + "\\b";
-            return message.replaceAll(regex, emoji);
-        } else {
-            // Simple string replacement
-            return message.replace(code, emoji);
-        }
+        // Single pass, longest code wins; returns the same instance when nothing matched
+        return current.replace(message, plugin.getConfigManager().isWordBoundaryEnabled());
     }
     
     public boolean areEmojisEnabledForPlayer(Player player) {
-        if (!player.hasPermission("chatplus.emojis.use")) {
+        if (!plugin.getPermissionCacheManager().has(player, PermissionCacheManager.EMOJIS_USE)) {
             return false;
         }
         
         // Check group-based emoji settings
         String group = plugin.getCooldownManager().getPlayerGroup(player);
         if (group != null) {
-            ConfigurationSection groupSection = plugin.getConfigManager().getEmojiGroups();
-            if (groupSection != null && groupSection.contains(group)) {
-                return groupSection.getBoolean(group, true);
+            Boolean groupEnabled = plugin.getConfigManager().getEmojiGroups().get(group);
+            if (groupEnabled != null) {
+                return groupEnabled;
             }
         }
         
         // Check world-based emoji settings
         String world = player.getWorld().getName();
-        ConfigurationSection worldSection = plugin.getConfigManager().getEmojiWorlds();
-        if (worldSection != null && worldSection.contains(world)) {
-            return worldSection.getBoolean(world, true);
+        Boolean worldEnabled = plugin.getConfigManager().getEmojiWorlds().get(world);
+        if (worldEnabled != null) {
+            return worldEnabled;
         }
         
         return true;
@@ -97,21 +67,26 @@ public class EmojiManager {
             return false;
         }
         
-        Map<String, String> emojiMappings = plugin.getConfigManager().getEmojiMappings();
-        
-        for (String code : emojiMappings.keySet()) {
-            if (message.contains(code)) {
-                return true;
-            }
+        return trie.containsCode(message, plugin.getConfigManager().isWordBoundaryEnabled());
+    }
+    
+    /**
+     * Number of emoji codes a replacement would substitute in the message.
+     */
+    public int countEmojiCodes(String message) {
+        if (!plugin.getConfigManager().isEmojiEnabled()) {
+            return 0;
         }
         
-        return false;
+        return trie.countCodes(message, plugin.getConfigManager().isWordBoundaryEnabled());
     }
     
-    private void updateWordBoundaryPattern() {
-        if (plugin.getConfigManager().isWordBoundaryEnabled()) {
-            // Pre-compile pattern for better performance
-            this.wordBoundaryPattern = Pattern.compile("\\b");
-        }
+    public void reload() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        this.trie = EmojiTrie.compile(config.getEmojiMappings(), config.getEmojiReplacementOrder());
+    }
+    
+    public EmojiTrie getTrie() {
+        return trie;
     }
 }
\ No newline at end of file
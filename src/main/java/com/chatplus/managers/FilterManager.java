@@ -1,6 +1,12 @@
 package com.chatplus.managers;
 
 import com.chatplus.ChatPlusPlugin;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.filter.BlacklistAutomaton;
+import com.chatplus.filter.ClickableTokenizer;
+import com.chatplus.filter.FilterVerdict;
+import com.chatplus.filter.MessageScanner;
+import com.chatplus.filter.TextNormalizer;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
 import net.md_5.bungee.api.chat.HoverEvent;
@@ -10,104 +16,125 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class FilterManager {
     
     private final ChatPlusPlugin plugin;
-    private final Map<String, Pattern> compiledPatterns = new HashMap<>();
-    private final Map<String, ClickableAction> clickableActions = new HashMap<>();
+    private volatile ClickableTokenizer clickables = ClickableTokenizer.EMPTY;
+    private volatile MessageScanner scanner;
     
     public FilterManager(ChatPlusPlugin plugin) {
         this.plugin = plugin;
+        reload();
+    }
+    
+    public void reload() {
         loadClickableActions();
+        compileScanner();
+    }
+    
+    /**
+     * Recompiles only the scanner; clickable actions come from config.yml alone.
+     */
+    public void reloadScanner() {
+        compileScanner();
+    }
+    
+    private void compileScanner() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        
+        TextNormalizer normalizer = null;
+        if (config.isCheckVariations()) {
+            normalizer = new TextNormalizer(
+                config.isNormalizeLeetspeak(),
+                config.isNormalizeHomoglyphs(),
+                config.isStripInvisibleChars(),
+                config.isCollapsePadding(),
+                config.getPaddingChars());
+        }
+        
+        // Replacements depend on the configured replacement type, so they are built here too
+        BlacklistAutomaton blacklist = BlacklistAutomaton.compile(getBlacklist(), normalizer, this::createReplacement);
+        this.scanner = new MessageScanner(blacklist, normalizer,
+            config.getMaxRepeatedChars(),
+            config.getMaxCapsRatio(),
+            config.getMinCapsLength());
     }
     
     private void loadClickableActions() {
-        clickableActions.clear();
+        Map<String, TextComponent> actions = new HashMap<>();
         ConfigurationSection section = plugin.getConfig().getConfigurationSection("clickable-actions");
         
         if (section != null) {
             for (String key : section.getKeys(false)) {
                 ConfigurationSection actionSection = section.getConfigurationSection(key);
                 if (actionSection != null) {
-                    ClickableAction action = new ClickableAction(
+                    actions.put(key, createClickable(
                         actionSection.getString("display", key),
                         actionSection.getString("hover", ""),
                         actionSection.getString("click-action", "OPEN_URL"),
                         actionSection.getString("click-value", "")
-                    );
-                    clickableActions.put(key, action);
+                    ));
                 }
             }
         }
+        
+        this.clickables = new ClickableTokenizer(actions);
     }
     
-    public boolean shouldFilterMessage(Player player, String message) {
-        if (!plugin.getConfigManager().isFilterEnabled()) {
-            return false;
-        }
+    // Built once per reload; the tokenizer hands out copies
+    private TextComponent createClickable(String display, String hoverText, String clickAction, String clickValue) {
+        TextComponent clickable = new TextComponent(
+            TextComponent.fromLegacyText(ChatColor.translateAlternateColorCodes('&', display)));
         
-        // Check profanity/blacklist first
-        if (containsProfanity(player, message)) {
-            return true;
+        // Add hover text
+        if (!hoverText.isEmpty()) {
+            clickable.setHoverEvent(new HoverEvent(
+                HoverEvent.Action.SHOW_TEXT,
+                new ComponentBuilder(ChatColor.translateAlternateColorCodes('&', hoverText)).create()
+            ));
         }
         
-        // Check for excessive repeated characters
-        if (hasExcessiveRepeatedChars(message)) {
-            return true;
+        // Add click action
+        if (!clickValue.isEmpty()) {
+            ClickEvent.Action action = parseClickAction(clickAction);
+            if (action != null) {
+                clickable.setClickEvent(new ClickEvent(action, clickValue));
+            }
         }
         
-        // Check for excessive caps
-        if (hasExcessiveCaps(message)) {
-            return true;
+        return clickable;
+    }
+    
+    public boolean shouldFilterMessage(Player player, String message) {
+        return checkMessage(player, message).isFiltered();
+    }
+    
+    public FilterVerdict checkMessage(Player player, String message) {
+        if (!plugin.getConfigManager().isFilterEnabled()) {
+            return FilterVerdict.PASS;
         }
         
-        return false;
+        // Caps, repeated chars and the blacklist are all checked in one pass
+        return scanner.scan(message, shouldBlockProfanity(player));
     }
     
-    private boolean containsProfanity(Player player, String message) {
-        if (player.hasPermission("chatplus.bypass.profanity")) {
+    private boolean shouldBlockProfanity(Player player) {
+        // Replace mode masks the words in processMessage instead of blocking
+        if (!getProfanityAction().equals("block")) {
             return false;
         }
         
-        List<String> blacklist = getBlacklist();
-        String lowerMessage = message.toLowerCase();
-        
-        for (String word : blacklist) {
-            if (word.trim().isEmpty()) continue;
-            
-            // Create pattern if not cached
-            if (!compiledPatterns.containsKey(word)) {
-                // Use word boundaries to avoid false positives
-                String regex = "\\b" + Pattern.quote(word.toLowerCase()) + "\\b";
-                compiledPatterns.put(word, Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
-            }
-            
-            Pattern pattern = compiledPatterns.get(word);
-            if (pattern.matcher(lowerMessage).find()) {
-                return true;
-            }
-        }
-        
-        return false;
+        return !plugin.getPermissionCacheManager().has(player, PermissionCacheManager.BYPASS_PROFANITY);
     }
     
     public String processMessage(Player player, String message) {
-        String processedMessage = message;
-        
-        // Replace profanity with symbols
-        processedMessage = replaceProfanity(player, processedMessage);
-        
-        // Process clickable actions
-        processedMessage = processClickableActions(processedMessage);
-        
-        return processedMessage;
+        // Replace profanity with symbols; clickable triggers are left for createClickableComponent
+        return replaceProfanity(player, message);
     }
     
     private String replaceProfanity(Player player, String message) {
-        if (player.hasPermission("chatplus.bypass.profanity")) {
+        if (plugin.getPermissionCacheManager().has(player, PermissionCacheManager.BYPASS_PROFANITY)) {
             return message;
         }
         
@@ -121,24 +148,12 @@ public class FilterManager {
             return message;
         }
         
-        List<String> blacklist = getBlacklist();
-        String result = message;
-        
-        for (String word : blacklist) {
-            if (word.trim().isEmpty()) continue;
-            
-            Pattern pattern = compiledPatterns.get(word);
-            if (pattern == null) {
-                String regex = "\\b" + Pattern.quote(word.toLowerCase()) + "\\b";
-                pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-                compiledPatterns.put(word, pattern);
-            }
-            
-            Matcher matcher = pattern.matcher(result);
-            result = matcher.replaceAll(createReplacement(word));
+        MessageScanner current = scanner;
+        TextNormalizer normalizer = current.getNormalizer();
+        if (normalizer != null) {
+            return current.getBlacklist().replace(message, normalizer.normalize(message));
         }
-        
-        return result;
+        return current.getBlacklist().replace(message);
     }
     
     private String createReplacement(String word) {
@@ -165,59 +180,20 @@ public class FilterManager {
         }
     }
     
-    private String processClickableActions(String message) {
-        String result = message;
-        
-        for (Map.Entry<String, ClickableAction> entry : clickableActions.entrySet()) {
-            String trigger = entry.getKey();
-            ClickableAction action = entry.getValue();
-            
-            // Replace trigger with display text (for non-JSON chat)
-            result = result.replace(":" + trigger + ":", action.display);
-        }
-        
-        return result;
+    public boolean containsClickableActions(String message) {
+        return clickables.containsTrigger(message);
     }
     
+    public int countClickableActions(String message) {
+        return clickables.countTriggers(message);
+    }
+    
+    /**
+     * Builds the clickable component for a message, or returns null when the message
+     * has no configured :trigger: in it.
+     */
     public TextComponent createClickableComponent(String message) {
-        TextComponent component = new TextComponent("");
-        
-        String[] parts = message.split("(?=:[^:]+:)|(?<=:[^:]+:)");
-        
-        for (String part : parts) {
-            if (part.matches(":[^:]+:")) {
-                String trigger = part.substring(1, part.length() - 1);
-                ClickableAction action = clickableActions.get(trigger);
-                
-                if (action != null) {
-                    TextComponent clickable = new TextComponent(action.display);
-                    
-                    // Add hover text
-                    if (!action.hoverText.isEmpty()) {
-                        clickable.setHoverEvent(new HoverEvent(
-                            HoverEvent.Action.SHOW_TEXT,
-                            new ComponentBuilder(ChatColor.translateAlternateColorCodes('&', action.hoverText)).create()
-                        ));
-                    }
-                    
-                    // Add click action
-                    if (!action.clickValue.isEmpty()) {
-                        ClickEvent.Action clickAction = parseClickAction(action.clickAction);
-                        if (clickAction != null) {
-                            clickable.setClickEvent(new ClickEvent(clickAction, action.clickValue));
-                        }
-                    }
-                    
-                    component.addExtra(clickable);
-                } else {
-                    component.addExtra(new TextComponent(part));
-                }
-            } else {
-                component.addExtra(new TextComponent(part));
-            }
-        }
-        
-        return component;
+        return clickables.tokenize(message);
     }
     
     private ClickEvent.Action parseClickAction(String action) {
@@ -229,90 +205,23 @@ public class FilterManager {
         }
     }
     
-    private boolean hasExcessiveRepeatedChars(String message) {
-        int maxRepeated = plugin.getConfigManager().getMaxRepeatedChars();
-        if (maxRepeated <= 0) {
-            return false;
-        }
-        
-        char lastChar = 0;
-        int count = 1;
-        
-        for (char c : message.toCharArray()) {
-            if (c == lastChar) {
-                count++;
-                if (count > maxRepeated) {
-                    return true;
-                }
-            } else {
-                count = 1;
-                lastChar = c;
-            }
-        }
-        
-        return false;
-    }
-    
-    private boolean hasExcessiveCaps(String message) {
-        double maxCapsRatio = plugin.getConfigManager().getMaxCapsRatio();
-        int minCapsLength = plugin.getConfigManager().getMinCapsLength();
-        
-        if (maxCapsRatio <= 0 || message.length() < minCapsLength) {
-            return false;
-        }
-        
-        int capsCount = 0;
-        int letterCount = 0;
-        
-        for (char c : message.toCharArray()) {
-            if (Character.isLetter(c)) {
-                letterCount++;
-                if (Character.isUpperCase(c)) {
-                    capsCount++;
-                }
-            }
-        }
-        
-        if (letterCount == 0) {
-            return false;
-        }
-        
-        double capsRatio = (double) capsCount / letterCount;
-        return capsRatio > maxCapsRatio;
-    }
-    
     private List<String> getBlacklist() {
-        return plugin.getConfig().getStringList("filters.blacklist.words");
+        return plugin.getConfigManager().getSnapshot().getBlacklistWords();
     }
     
     private String getProfanityAction() {
-        return plugin.getConfig().getString("filters.blacklist.action", "replace");
+        return plugin.getConfigManager().getSnapshot().getBlacklistAction();
     }
     
     private String getReplacementType() {
-        return plugin.getConfig().getString("filters.blacklist.replacement-type", "asterisk");
+        return plugin.getConfigManager().getSnapshot().getReplacementType();
     }
     
     private String getCustomReplacement() {
-        return plugin.getConfig().getString("filters.blacklist.custom-replacement", "*");
+        return plugin.getConfigManager().getSnapshot().getCustomReplacement();
     }
     
     public String getFilteredMessage(Player player) {
-        return plugin.getConfigManager().getMessage("filtered")
-                .replace("{player}", player.getName());
-    }
-    
-    private static class ClickableAction {
-        final String display;
-        final String hoverText;
-        final String clickAction;
-        final String clickValue;
-        
-        ClickableAction(String display, String hoverText, String clickAction, String clickValue) {
-            this.display = display;
-            this.hoverText = hoverText;
-            this.clickAction = clickAction;
-            this.clickValue = clickValue;
-        }
+        return plugin.getConfigManager().getMessage("filtered", "player", player.getName());
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.chatplus.managers;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.state.FloodSketch;
+import com.chatplus.state.HeavyHitters;
+import com.chatplus.state.SimHash;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+/**
+ * Server-wide flood detection. Every other check is per player, so a raid of
+ * fresh accounts each sending the same message once gets through them all; this
+ * counts message fingerprints across every player and blocks a fingerprint once
+ * it shows up too often within the window.
+ * <p>
+ * The fingerprint is taken of a normalised form of the message, without digits
+ * and without its last word, so a raid that tacks a counter or random tag onto
+ * each copy still adds up.
+ */
+public class FloodManager {
+    
+    private static final int SKETCH_WIDTH = 4096;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_BLOCKED = 32;
+    // Messages with fewer words keep their last one, even a link or number
+    private static final int MIN_WORDS_TO_TRIM = 3;
+    
+    private static final ThreadLocal<StringBuilder> KEY_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+    
+    private final ChatPlusPlugin plugin;
+    private final HeavyHitters blocked = new HeavyHitters(MAX_BLOCKED);
+    private volatile FloodSketch sketch;
+    
+    public FloodManager(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+    
+    public void reload() {
+        long window = plugin.getConfigManager().getSnapshot().getFloodWindowMillis();
+        FloodSketch current = sketch;
+        if (current == null || current.getWindowMillis() != window) {
+            sketch = new FloodSketch(SKETCH_WIDTH, SKETCH_DEPTH, window);
+        }
+    }
+    
+    /**
+     * Counts the message and returns true when it is part of a flood and must be blocked.
+     */
+    public boolean isFlooding(Player player, String message) {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!config.isFloodEnabled() || message.length() < config.getFloodMinLength()) {
+            return false;
+        }
+        
+        if (plugin.getPermissionCacheManager().has(player, PermissionCacheManager.BYPASS_FLOOD)) {
+            return false;
+        }
+        
+        long now = System.currentTimeMillis();
+        long fingerprint = floodKey(message);
+        if (blocked.find(fingerprint, config.getFloodMaxDistance(), now) != null) {
+            return true;
+        }
+        
+        // Counted by exact key; once blocked, variations within max-distance match the entry
+        FloodSketch current = sketch;
+        long count = current.add(fingerprint, now);
+        if (count < config.getFloodThreshold()) {
+            return false;
+        }
+        
+        long expiresAt = now + config.getFloodBlockMillis();
+        if (blocked.offer(fingerprint, config.getFloodMaxDistance(), count, now, expiresAt, message)) {
+            plugin.getSyncManager().publishFlood(fingerprint, count, expiresAt, message);
+            plugin.getLogger().warning("Flood detected, blocking for " + config.getFloodBlockMillis() / 1000
+                + "s: \"" + message + "\" (" + count + " times in " + current.getWindowMillis() / 1000 + "s)");
+        }
+        return true;
+    }
+    
+    // SimHash of the message without digits and, for longer messages, without a trailing
+    // link or number, which spammers vary per send; other last words still count
+    static long floodKey(String message) {
+        StringBuilder key = KEY_BUFFER.get();
+        key.setLength(0);
+        
+        int end = message.length();
+        while (end > 0 && Character.isWhitespace(message.charAt(end - 1))) {
+            end--;
+        }
+        int lastWord = end;
+        while (lastWord > 0 && !Character.isWhitespace(message.charAt(lastWord - 1))) {
+            lastWord--;
+        }
+        
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < lastWord; i++) {
+            boolean space = Character.isWhitespace(message.charAt(i));
+            if (!space && !inWord) {
+                words++;
+            }
+            inWord = !space;
+        }
+        if (words + 1 < MIN_WORDS_TO_TRIM || !isVariableWord(message, lastWord, end)) {
+            lastWord = end;
+        }
+        
+        for (int i = 0; i < lastWord; i++) {
+            char c = message.charAt(i);
+            if (!Character.isDigit(c)) {
+                key.append(c);
+            }
+        }
+        return SimHash.fingerprint(key);
+    }
+    
+    // A word with a digit in it, or one that looks like a link: "x7k2", "http://a.b/c", "spam.net"
+    private static boolean isVariableWord(String message, int from, int to) {
+        if (message.startsWith("www.", from) || message.indexOf("://", from) >= 0) {
+            return true;
+        }
+        
+        for (int i = from; i < to; i++) {
+            char c = message.charAt(i);
+            if (Character.isDigit(c)) {
+                return true;
+            }
+            if (c == '.' && i > from && i + 1 < to
+                && Character.isLetter(message.charAt(i - 1)) && Character.isLetter(message.charAt(i + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Blocks a flood another server detected.
+     */
+    public void applyBlock(long fingerprint, long count, long expiresAt, String sample) {
+        long now = System.currentTimeMillis();
+        if (expiresAt > now) {
+            blocked.offer(fingerprint, plugin.getConfigManager().getSnapshot().getFloodMaxDistance(),
+                count, now, expiresAt, sample);
+        }
+    }
+    
+    public List<HeavyHitters.Entry> getBlocked() {
+        return blocked.getEntries(System.currentTimeMillis());
+    }
+    
+    public void clear() {
+        blocked.clear();
+        sketch.clear();
+    }
+    
+    public long getFootprintBytes() {
+        return sketch.footprintBytes();
+    }
+    
+    public String getFloodMessage(Player player) {
+        return plugin.getConfigManager().getMessage("flood-blocked", "player", player.getName());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.chatplus.managers;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.integrations.LuckPermsIntegration;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class GroupCacheManager {
+    
+    private static final String DEFAULT_GROUP = "default";
+    
+    private final ChatPlusPlugin plugin;
+    private final Map<UUID, CachedGroup> groups = new ConcurrentHashMap<>();
+    private LuckPermsIntegration luckPermsIntegration;
+    
+    public GroupCacheManager(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+        
+        // LuckPerms tells us when a user's data changes, so its entries are updated in place
+        if (plugin.getConfig().getBoolean("integrations.luckperms.enabled", true)
+            && plugin.getServer().getPluginManager().getPlugin("LuckPerms") != null) {
+            try {
+                this.luckPermsIntegration = new LuckPermsIntegration(plugin, this);
+                this.luckPermsIntegration.register();
+            } catch (Exception | LinkageError e) {
+                plugin.getLogger().warning("Could not hook into LuckPerms: " + e.getMessage());
+                this.luckPermsIntegration = null;
+            }
+        }
+        
+        // Fill the cache for players that are already online (e.g. after a reload)
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            refresh(player);
+        }
+    }
+    
+    public void shutdown() {
+        if (luckPermsIntegration != null) {
+            luckPermsIntegration.unregister();
+        }
+        groups.clear();
+    }
+    
+    /**
+     * True when group and permission changes are pushed to us by LuckPerms.
+     */
+    public boolean hasChangeEvents() {
+        return luckPermsIntegration != null;
+    }
+    
+    public String getGroup(Player player) {
+        CachedGroup cached = groups.get(player.getUniqueId());
+        if (cached != null && System.currentTimeMillis() < cached.expiresAt) {
+            return cached.group;
+        }
+        return refresh(player);
+    }
+    
+    public String refresh(Player player) {
+        String group = DEFAULT_GROUP;
+        long expiresAt = System.currentTimeMillis() + getTimeout();
+        
+        String luckPermsGroup = luckPermsIntegration != null
+            ? luckPermsIntegration.getPrimaryGroup(player.getUniqueId()) : null;
+        
+        if (luckPermsGroup != null) {
+            group = luckPermsGroup;
+        } else {
+            String vaultGroup = getVaultGroup(player);
+            if (vaultGroup != null) {
+                group = vaultGroup;
+            }
+        }
+        
+        groups.put(player.getUniqueId(), new CachedGroup(group, expiresAt));
+        return group;
+    }
+    
+    /**
+     * Called by the LuckPerms integration whenever a user's data is recalculated.
+     * Only players already cached are updated; LuckPerms also recalculates offline
+     * users (commands, the web editor) and may do so after the player has quit.
+     */
+    public void update(UUID playerId, String group) {
+        if (group == null) {
+            groups.remove(playerId);
+        } else {
+            long expiresAt = System.currentTimeMillis() + getTimeout();
+            groups.computeIfPresent(playerId, (id, cached) -> new CachedGroup(group, expiresAt));
+        }
+    }
+    
+    public void invalidate(UUID playerId) {
+        groups.remove(playerId);
+    }
+    
+    private String getVaultGroup(Player player) {
+        if (!plugin.getConfig().getBoolean("integrations.vault.enabled", true)
+            || plugin.getServer().getPluginManager().getPlugin("Vault") == null) {
+            return null;
+        }
+        
+        try {
+            net.milkbowl.vault.permission.Permission permission = plugin.getServer().getServicesManager()
+                .getRegistration(net.milkbowl.vault.permission.Permission.class).getProvider();
+            if (permission != null) {
+                return permission.getPrimaryGroup(player);
+            }
+        } catch (Exception e) {
+            // Vault not available or error occurred
+        }
+        
+        return null;
+    }
+    
+    private long getTimeout() {
+        // Vault has no change events, and a missed LuckPerms event should not stick forever
+        return Math.max(1, plugin.getConfig().getLong("performance.cache-timeout", 30)) * 60_000L;
+    }
+    
+    private static class CachedGroup {
+        final String group;
+        final long expiresAt;
+        
+        CachedGroup(String group, long expiresAt) {
+            this.group = group;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
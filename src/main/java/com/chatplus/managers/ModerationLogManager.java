@@ -0,0 +1,59 @@
+package com.chatplus.managers;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.logging.ModerationLog;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+
+/**
+ * Records blocked, throttled and censored messages to logs/moderation.log in the
+ * plugin folder without doing any I/O on the chat thread.
+ */
+public class ModerationLogManager {
+    
+    private final ModerationLog log;
+    
+    public ModerationLogManager(ChatPlusPlugin plugin) {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        ModerationLog created = null;
+        if (config.isModerationLogEnabled()) {
+            try {
+                created = new ModerationLog(plugin.getDataFolder().toPath().resolve("logs"),
+                    config.getModerationLogBufferSize(), config.isModerationLogBlocking(),
+                    config.getModerationLogMaxFileBytes(), config.getModerationLogMaxFiles(), plugin.getLogger());
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not open the moderation log: " + e.getMessage());
+            }
+        }
+        this.log = created;
+    }
+    
+    public boolean isEnabled() {
+        return log != null;
+    }
+    
+    /**
+     * Queues a record; the action is the pipeline stage or rule that acted on the message.
+     */
+    public void record(Player player, String action, String message) {
+        if (log != null) {
+            log.record(player.getUniqueId(), player.getName(), action, message);
+        }
+    }
+    
+    public long getWritten() {
+        return log != null ? log.getWritten() : 0;
+    }
+    
+    public long getDropped() {
+        return log != null ? log.getDropped() : 0;
+    }
+    
+    public void shutdown() {
+        if (log != null) {
+            log.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.chatplus.managers;
+
+import com.chatplus.ChatPlusPlugin;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ChatPlus permission nodes of each player, resolved into a bitset so the
+ * chat path reads one map entry instead of asking the permission plugin for
+ * every check. Entries are refreshed on join and world change, dropped when
+ * LuckPerms recalculates a user, and otherwise expire after performance.cache-timeout.
+ */
+public class PermissionCacheManager {
+    
+    public static final int BYPASS_COOLDOWN = 1;
+    public static final int BYPASS_DUPLICATE = 1 << 1;
+    public static final int BYPASS_PROFANITY = 1 << 2;
+    public static final int BYPASS_TOGGLE = 1 << 3;
+    public static final int EMOJIS_USE = 1 << 4;
+    public static final int BYPASS_FLOOD = 1 << 5;
+    
+    // Indexed by bit position
+    private static final String[] NODES = {
+        "chatplus.bypass.cooldown",
+        "chatplus.bypass.duplicate",
+        "chatplus.bypass.profanity",
+        "chatplus.bypass.toggle",
+        "chatplus.emojis.use",
+        "chatplus.bypass.flood"
+    };
+    
+    private final ChatPlusPlugin plugin;
+    private final Map<UUID, CachedPermissions> permissions = new ConcurrentHashMap<>();
+    
+    public PermissionCacheManager(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+        
+        // Fill the cache for players that are already online (e.g. after a reload)
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            refresh(player);
+        }
+    }
+    
+    public boolean has(Player player, int permission) {
+        return (getPermissions(player) & permission) != 0;
+    }
+    
+    public int getPermissions(Player player) {
+        CachedPermissions cached = permissions.get(player.getUniqueId());
+        if (cached != null && System.currentTimeMillis() < cached.expiresAt) {
+            return cached.bits;
+        }
+        return refresh(player);
+    }
+    
+    public int refresh(Player player) {
+        int bits = 0;
+        for (int i = 0; i < NODES.length; i++) {
+            if (player.hasPermission(NODES[i])) {
+                bits |= 1 << i;
+            }
+        }
+        
+        // With LuckPerms we are told about changes, so entries only need a refresh on invalidate
+        long expiresAt = plugin.getGroupCacheManager() != null && plugin.getGroupCacheManager().hasChangeEvents()
+            ? Long.MAX_VALUE
+            : System.currentTimeMillis() + getTimeout();
+        permissions.put(player.getUniqueId(), new CachedPermissions(bits, expiresAt));
+        return bits;
+    }
+    
+    public void refreshAll() {
+        permissions.clear();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            refresh(player);
+        }
+    }
+    
+    /**
+     * Drops a player's entry; the next check resolves the nodes again.
+     */
+    public void invalidate(UUID playerId) {
+        permissions.remove(playerId);
+    }
+    
+    public static String[] getNodes() {
+        return NODES.clone();
+    }
+    
+    private long getTimeout() {
+        return Math.max(1, plugin.getConfig().getLong("performance.cache-timeout", 30)) * 60_000L;
+    }
+    
+    private static class CachedPermissions {
+        final int bits;
+        final long expiresAt;
+        
+        CachedPermissions(int bits, long expiresAt) {
+            this.bits = bits;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
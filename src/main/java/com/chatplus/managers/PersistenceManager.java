@@ -0,0 +1,224 @@
+package com.chatplus.managers;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.state.PlayerState;
+import com.chatplus.state.PlayerStateTable;
+import com.chatplus.state.StateLog;
+import com.chatplus.state.TokenBuckets;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps cooldown, duplicate and mute state across restarts in state.log in the data
+ * folder. The chat thread only marks a player as changed; a writer thread appends
+ * the changed rows in batches and compacts the log once it has grown well past the
+ * live state. Rows are kept after a player quits and pruned once they are older
+ * than persistence.max-age.
+ */
+public class PersistenceManager {
+    
+    private static final String FILE_NAME = "state.log";
+    // Compact once the log is this many times the size of a fresh snapshot
+    private static final int COMPACT_RATIO = 4;
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+    private static final long PRUNE_INTERVAL_SECONDS = 60;
+    
+    private final ChatPlusPlugin plugin;
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    private volatile boolean mutesDirty;
+    private StateLog log;
+    private ScheduledExecutorService writer;
+    
+    public PersistenceManager(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+        
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!config.isPersistenceEnabled()) {
+            return;
+        }
+        
+        try {
+            load(config);
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().severe("Could not load " + FILE_NAME + ", chat state will not be saved: " + e.getMessage());
+            return;
+        }
+        
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChatPlus-State");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getPersistenceFlushSeconds();
+        writer.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.SECONDS);
+        // Load skips the saved rows of pruned players and compaction drops them
+        writer.scheduleWithFixedDelay(plugin.getCooldownManager()::pruneIdle, PRUNE_INTERVAL_SECONDS,
+            PRUNE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * True while state is being saved.
+     */
+    public boolean isActive() {
+        return writer != null;
+    }
+    
+    private void load(ConfigSnapshot config) throws IOException {
+        long start = System.currentTimeMillis();
+        long cutoff = start - config.getPersistenceMaxAgeMillis();
+        PlayerStateTable states = plugin.getCooldownManager().getStates();
+        TokenBuckets buckets = plugin.getCooldownManager().getBuckets();
+        ChatToggleManager toggles = plugin.getChatToggleManager();
+        
+        Path file = plugin.getDataFolder().toPath().resolve(FILE_NAME);
+        plugin.getDataFolder().mkdirs();
+        log = StateLog.open(file, new StateLog.Visitor() {
+            @Override
+            public void player(PlayerState state, long bucket) {
+                UUID id = state.getId();
+                if (state.getLastMessageTime() < cutoff) {
+                    // Too old to matter; drop anything an earlier record restored
+                    states.remove(id);
+                    buckets.remove(id);
+                    return;
+                }
+                states.restore(state);
+                buckets.setArrival(id, bucket);
+            }
+            
+            @Override
+            public void removed(UUID id) {
+                states.remove(id);
+                buckets.remove(id);
+            }
+            
+            @Override
+            public void mutes(boolean global, List<String> worlds) {
+                toggles.restoreMutes(global, worlds);
+            }
+        });
+        
+        if (log.getDiscardedBytes() > 0) {
+            plugin.getLogger().warning("Dropped " + log.getDiscardedBytes() + " unreadable bytes at the end of " + FILE_NAME);
+        }
+        plugin.getLogger().info("Loaded chat state for " + states.size() + " players in "
+            + (System.currentTimeMillis() - start) + "ms");
+    }
+    
+    /**
+     * Queues the player's current state for the next write.
+     */
+    public void markDirty(UUID playerId) {
+        if (writer != null) {
+            dirtyPlayers.add(playerId);
+        }
+    }
+    
+    public void markMutesDirty() {
+        if (writer != null) {
+            mutesDirty = true;
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("Could not write " + FILE_NAME + ": " + e.getMessage());
+        }
+    }
+    
+    // Only ever runs on the writer thread, or after it has stopped
+    private void flush() throws IOException {
+        PlayerStateTable states = plugin.getCooldownManager().getStates();
+        TokenBuckets buckets = plugin.getCooldownManager().getBuckets();
+        PlayerState state = new PlayerState();
+        
+        for (Iterator<UUID> it = dirtyPlayers.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            if (states.copyTo(id, state)) {
+                log.putPlayer(state, buckets.getArrival(id));
+            } else {
+                log.putRemoved(id);
+            }
+        }
+        
+        if (mutesDirty) {
+            mutesDirty = false;
+            writeMutes(log);
+        }
+        log.flush();
+        
+        long compactAt = Math.max(MIN_COMPACT_BYTES, COMPACT_RATIO * StateLog.estimateSize(states.size()));
+        if (log.size() > compactAt) {
+            compact();
+        }
+    }
+    
+    private void compact() throws IOException {
+        PlayerStateTable states = plugin.getCooldownManager().getStates();
+        TokenBuckets buckets = plugin.getCooldownManager().getBuckets();
+        long before = log.size();
+        
+        log.rewrite(out -> {
+            try {
+                states.forEach(state -> {
+                    try {
+                        out.putPlayer(state, buckets.getArrival(state.getId()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writeMutes(out);
+        });
+        
+        if (plugin.getConfig().getBoolean("debug.enabled", false)) {
+            plugin.getLogger().info("Compacted " + FILE_NAME + " from " + before + " to " + log.size() + " bytes");
+        }
+    }
+    
+    private void writeMutes(StateLog out) throws IOException {
+        ChatToggleManager toggles = plugin.getChatToggleManager();
+        out.putMutes(toggles.isChatMuted(), new ArrayList<>(toggles.getMutedWorlds()));
+    }
+    
+    /**
+     * Stops the writer and writes whatever is still pending.
+     */
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        try {
+            flush();
+            log.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write " + FILE_NAME + " on shutdown: " + e.getMessage());
+        }
+        writer = null;
+    }
+}
\ No newline at end of file
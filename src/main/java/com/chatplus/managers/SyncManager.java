@@ -0,0 +1,235 @@
+package com.chatplus.managers;
+
+import com.chatplus.ChatPlusPlugin;
+import com.chatplus.config.ConfigSnapshot;
+import com.chatplus.state.PlayerState;
+import com.chatplus.state.PlayerStateTable;
+import com.chatplus.state.TokenBuckets;
+import com.chatplus.sync.FileTransport;
+import com.chatplus.sync.LoopbackTransport;
+import com.chatplus.sync.SyncBatch;
+import com.chatplus.sync.SyncTransport;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares cooldowns, mutes and flood blocks with the other ChatPlus servers behind
+ * the same proxy, so hopping servers does not escape them. Changes are only marked
+ * on the chat thread; every sync.interval a worker sends one batch holding the
+ * current state of everything that changed (so repeated changes coalesce) and
+ * merges what the other servers sent, keeping the newest state.
+ * <p>
+ * Rows arrive for every player on the network, not just those online here, so
+ * they are pruned after persistence.max-age like the rows of players who left.
+ */
+public class SyncManager {
+    
+    private static final long PRUNE_INTERVAL_SECONDS = 60;
+    
+    private final ChatPlusPlugin plugin;
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    private final Queue<FloodBlock> floods = new ConcurrentLinkedQueue<>();
+    private volatile boolean mutesDirty;
+    private String serverId;
+    private SyncTransport transport;
+    private ScheduledExecutorService worker;
+    private boolean failing;
+    
+    public SyncManager(ChatPlusPlugin plugin) {
+        this.plugin = plugin;
+        
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!config.isSyncEnabled()) {
+            return;
+        }
+        
+        this.serverId = config.getSyncServerId();
+        try {
+            this.transport = createTransport(config);
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().severe("Could not start chat sync: " + e.getMessage());
+            return;
+        }
+        
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChatPlus-Sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getSyncIntervalMillis();
+        worker.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.MILLISECONDS);
+        PersistenceManager persistence = plugin.getPersistenceManager();
+        if (persistence == null || !persistence.isActive()) {
+            // Otherwise the persistence writer already prunes
+            worker.scheduleWithFixedDelay(plugin.getCooldownManager()::pruneIdle, PRUNE_INTERVAL_SECONDS,
+                PRUNE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        plugin.getLogger().info("Chat sync enabled as '" + serverId + "' over " + config.getSyncTransport());
+    }
+    
+    private SyncTransport createTransport(ConfigSnapshot config) throws IOException {
+        switch (config.getSyncTransport()) {
+            case "file":
+                Path directory = plugin.getDataFolder().toPath().resolve(config.getSyncDirectory()).normalize();
+                return new FileTransport(directory, serverId, config.getSyncMaxFileBytes());
+            case "loopback":
+                return new LoopbackTransport(config.getSyncDirectory());
+            default:
+                throw new IllegalArgumentException("Unknown sync transport '" + config.getSyncTransport() + "'");
+        }
+    }
+    
+    public void markDirty(UUID playerId) {
+        if (worker != null) {
+            dirtyPlayers.add(playerId);
+        }
+    }
+    
+    public void markMutesDirty() {
+        if (worker != null) {
+            mutesDirty = true;
+        }
+    }
+    
+    public void publishFlood(long fingerprint, long count, long expiresAt, String sample) {
+        if (worker != null) {
+            floods.add(new FloodBlock(fingerprint, count, expiresAt, sample));
+        }
+    }
+    
+    private void tick() {
+        try {
+            send();
+            receive();
+            if (failing) {
+                plugin.getLogger().info("Chat sync recovered");
+                failing = false;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Warn once per outage rather than every interval
+            if (!failing) {
+                plugin.getLogger().warning("Chat sync failed, will keep retrying: " + e.getMessage());
+                failing = true;
+            }
+        }
+    }
+    
+    private void send() throws IOException {
+        PlayerStateTable states = plugin.getCooldownManager().getStates();
+        TokenBuckets buckets = plugin.getCooldownManager().getBuckets();
+        SyncBatch batch = new SyncBatch(serverId);
+        PlayerState state = new PlayerState();
+        
+        for (Iterator<UUID> it = dirtyPlayers.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            // A player who left is not sent; the other servers keep the last state they saw
+            if (states.copyTo(id, state)) {
+                batch.putPlayer(state, buckets.getArrival(id));
+            }
+        }
+        
+        if (mutesDirty) {
+            mutesDirty = false;
+            ChatToggleManager toggles = plugin.getChatToggleManager();
+            batch.putMutes(toggles.isChatMuted(), new ArrayList<>(toggles.getMutedWorlds()), toggles.getMutesChangedAt());
+        }
+        
+        for (FloodBlock flood; (flood = floods.poll()) != null; ) {
+            batch.putFlood(flood.fingerprint, flood.count, flood.expiresAt, flood.sample);
+        }
+        
+        if (!batch.isEmpty()) {
+            transport.publish(batch.toByteArray());
+        }
+    }
+    
+    private void receive() throws IOException {
+        PlayerStateTable states = plugin.getCooldownManager().getStates();
+        TokenBuckets buckets = plugin.getCooldownManager().getBuckets();
+        PersistenceManager persistence = plugin.getPersistenceManager();
+        
+        SyncBatch.Visitor apply = new SyncBatch.Visitor() {
+            @Override
+            public void player(PlayerState state, long bucket) {
+                UUID id = state.getId();
+                boolean applied = states.restoreIfNewer(state);
+                buckets.mergeArrival(id, bucket);
+                if ((applied || bucket != TokenBuckets.NONE) && persistence != null) {
+                    persistence.markDirty(id);
+                }
+            }
+            
+            @Override
+            public void mutes(boolean global, List<String> worlds, long changedAt) {
+                plugin.getChatToggleManager().applyMutes(global, worlds, changedAt);
+            }
+            
+            @Override
+            public void flood(long fingerprint, long count, long expiresAt, String sample) {
+                plugin.getFloodManager().applyBlock(fingerprint, count, expiresAt, sample);
+            }
+        };
+        
+        for (byte[] batch : transport.poll()) {
+            try {
+                if (!serverId.equals(SyncBatch.readServerId(batch))) {
+                    SyncBatch.read(batch, apply);
+                }
+            } catch (IOException e) {
+                // One bad batch should not hold up the rest
+                plugin.getLogger().warning("Skipped an unreadable sync batch: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Sends what is still pending and closes the transport.
+     */
+    public void shutdown() {
+        if (worker == null) {
+            return;
+        }
+        
+        worker.shutdown();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        try {
+            send();
+            transport.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not finish chat sync on shutdown: " + e.getMessage());
+        }
+        worker = null;
+    }
+    
+    private static final class FloodBlock {
+        final long fingerprint;
+        final long count;
+        final long expiresAt;
+        final String sample;
+        
+        FloodBlock(long fingerprint, long count, long expiresAt, String sample) {
+            this.fingerprint = fingerprint;
+            this.count = count;
+            this.expiresAt = expiresAt;
+            this.sample = sample;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.chatplus.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named latency histograms and counters for the chat path. Each pipeline stage
+ * gets a histogram under its own name; the listener adds "broadcast" and "total".
+ */
+public final class ChatMetrics {
+    
+    public static final String TOTAL = "total";
+    public static final String BROADCAST = "broadcast";
+    
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final List<String> order = new ArrayList<>();
+    
+    /**
+     * Histogram for a step, created on first use. Callers on the hot path should
+     * look it up once and keep the reference.
+     */
+    public LatencyHistogram timer(String name) {
+        LatencyHistogram timer = timers.get(name);
+        if (timer != null) {
+            return timer;
+        }
+        
+        synchronized (order) {
+            return timers.computeIfAbsent(name, key -> {
+                order.add(key);
+                return new LatencyHistogram();
+            });
+        }
+    }
+    
+    public static String cancelledCounter(String stage) {
+        return "cancelled." + stage;
+    }
+    
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+    
+    /**
+     * Timer names in the order they were first used, which follows the pipeline.
+     */
+    public List<String> getTimerNames() {
+        synchronized (order) {
+            return new ArrayList<>(order);
+        }
+    }
+    
+    public long getCount(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+    
+    public void reset() {
+        timers.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.chatplus.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over a rolling window. Durations go into
+ * log-linear buckets (four per power of two, so about 19% wide), kept per
+ * time slot; a slot is reused once it falls out of the window. Recording is
+ * an index computation and two atomic adds.
+ */
+public final class LatencyHistogram {
+    
+    public static final long SLOT_MILLIS = 10_000;
+    public static final int SLOTS = 30;
+    
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Below 2^MIN_SHIFT ns everything lands in the first bucket; above 2^MAX_SHIFT ns in the last
+    private static final int MIN_SHIFT = 6;
+    private static final int MAX_SHIFT = 36;
+    private static final int BUCKETS = (MAX_SHIFT - MIN_SHIFT + 1) * SUB_BUCKETS;
+    
+    private final Slot[] slots = new Slot[SLOTS];
+    private final Slot total = new Slot();
+    
+    public LatencyHistogram() {
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new Slot();
+        }
+    }
+    
+    public void record(long nanos) {
+        record(nanos, System.currentTimeMillis());
+    }
+    
+    public void record(long nanos, long nowMillis) {
+        int bucket = bucketOf(nanos);
+        long epoch = nowMillis / SLOT_MILLIS;
+        
+        Slot slot = slots[(int) (epoch % SLOTS)];
+        long slotEpoch = slot.epoch.get();
+        if (slotEpoch < epoch && slot.epoch.compareAndSet(slotEpoch, epoch)) {
+            // First writer of a new slot clears it; a racing write may be lost, which is fine for metrics
+            slot.clear();
+        }
+        slot.add(bucket, nanos);
+        total.add(bucket, nanos);
+    }
+    
+    static int bucketOf(long nanos) {
+        if (nanos < (1L << MIN_SHIFT)) {
+            return 0;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos);
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (shift - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (shift - MIN_SHIFT) * SUB_BUCKETS + sub;
+    }
+    
+    // Upper bound of a bucket, which is what percentiles report
+    static long upperBound(int bucket) {
+        int shift = bucket / SUB_BUCKETS + MIN_SHIFT;
+        int sub = bucket % SUB_BUCKETS;
+        return (1L << shift) + ((sub + 1L) << (shift - SUB_BITS)) - 1;
+    }
+    
+    /**
+     * Summary of the last windowMillis (rounded up to whole slots), or of everything
+     * since start when windowMillis is 0 or less.
+     */
+    public Snapshot snapshot(long windowMillis) {
+        return snapshot(windowMillis, System.currentTimeMillis());
+    }
+    
+    public Snapshot snapshot(long windowMillis, long nowMillis) {
+        if (windowMillis <= 0) {
+            return total.snapshot(0);
+        }
+        
+        long epoch = nowMillis / SLOT_MILLIS;
+        int window = (int) Math.min(SLOTS, (windowMillis + SLOT_MILLIS - 1) / SLOT_MILLIS);
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        long max = 0;
+        for (Slot slot : slots) {
+            long slotEpoch = slot.epoch.get();
+            if (slotEpoch > epoch - window && slotEpoch <= epoch) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += slot.counts.get(i);
+                }
+                sum += slot.sum.get();
+                max = Math.max(max, slot.max.get());
+            }
+        }
+        
+        // The current slot is only partly filled, so rates use the time actually covered
+        long covered = (window - 1) * SLOT_MILLIS + (nowMillis % SLOT_MILLIS);
+        return new Snapshot(counts, sum, max, Math.max(1, covered));
+    }
+    
+    public void reset() {
+        for (Slot slot : slots) {
+            slot.clear();
+        }
+        total.clear();
+    }
+    
+    private static final class Slot {
+        final AtomicLong epoch = new AtomicLong(-1);
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+        
+        void add(int bucket, long nanos) {
+            counts.incrementAndGet(bucket);
+            sum.addAndGet(nanos);
+            long current = max.get();
+            while (nanos > current && !max.compareAndSet(current, nanos)) {
+                current = max.get();
+            }
+        }
+        
+        void clear() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            sum.set(0);
+            max.set(0);
+        }
+        
+        Snapshot snapshot(long windowMillis) {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+            }
+            return new Snapshot(copy, sum.get(), max.get(), windowMillis);
+        }
+    }
+    
+    /**
+     * Point-in-time copy of a window. Percentiles are bucket upper bounds, in nanoseconds.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final long windowMillis;
+        
+        Snapshot(long[] counts, long sum, long max, long windowMillis) {
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.windowMillis = windowMillis;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getMax() {
+            return max;
+        }
+        
+        public long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+        
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            
+            long rank = (long) Math.ceil(percentile / 100.0 * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+        
+        /**
+         * Events per second over the window, or 0 for the since-start total.
+         */
+        public double getRate() {
+            return windowMillis <= 0 ? 0 : count * 1000.0 / windowMillis;
+        }
+    }
+}
\ No newline at end of file
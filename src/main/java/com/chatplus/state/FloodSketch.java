@@ -0,0 +1,102 @@
+package com.chatplus.state;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch over a sliding time window. Counts live in two generations of
+ * cells, the current window and the previous one, and an estimate weighs the
+ * previous window by how much of it still overlaps the sliding window. Memory is
+ * fixed at construction and every update is a handful of CAS operations.
+ * <p>
+ * Each cell packs the low 32 bits of its window number with a 32-bit count, so a
+ * cell left over from an older window reads as zero without any sweeping.
+ */
+public final class FloodSketch {
+    
+    private final int depth;
+    private final int mask;
+    private final long windowMillis;
+    // [generation][row][column], flattened
+    private final AtomicLongArray cells;
+    
+    public FloodSketch(int width, int depth, long windowMillis) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a power of two: " + width);
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.windowMillis = Math.max(1, windowMillis);
+        this.cells = new AtomicLongArray(2 * depth * width);
+    }
+    
+    /**
+     * Counts one occurrence of the key and returns its estimated count within the
+     * sliding window, including this one.
+     */
+    public long add(long key, long now) {
+        return update(key, now, true);
+    }
+    
+    public long estimate(long key, long now) {
+        return update(key, now, false);
+    }
+    
+    private long update(long key, long now, boolean increment) {
+        long window = now / windowMillis;
+        int current = (int) window;
+        int previous = current - 1;
+        double previousWeight = 1.0 - (double) (now % windowMillis) / windowMillis;
+        
+        int width = mask + 1;
+        int currentBase = (int) (window & 1) * depth * width;
+        int previousBase = depth * width - currentBase;
+        long h1 = key;
+        long h2 = Hashing.mix64(key) | 1;
+        
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = (int) (h1 + row * h2) & mask;
+            int offset = row * width + column;
+            
+            long count = increment ? increment(currentBase + offset, current) : countIn(currentBase + offset, current);
+            long older = countIn(previousBase + offset, previous);
+            estimate = Math.min(estimate, count + older * previousWeight);
+        }
+        return (long) Math.ceil(estimate);
+    }
+    
+    private long increment(int index, int window) {
+        while (true) {
+            long cell = cells.get(index);
+            long next = (int) (cell >>> 32) == window
+                ? cell + 1
+                : ((long) window << 32) | 1;
+            if ((int) next == 0) {
+                // Saturated
+                return 0xFFFFFFFFL;
+            }
+            if (cells.compareAndSet(index, cell, next)) {
+                return next & 0xFFFFFFFFL;
+            }
+        }
+    }
+    
+    private long countIn(int index, int window) {
+        long cell = cells.get(index);
+        return (int) (cell >>> 32) == window ? cell & 0xFFFFFFFFL : 0;
+    }
+    
+    public void clear() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+    
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+    
+    public long footprintBytes() {
+        return 16 + 16 + 8L * cells.length();
+    }
+}
\ No newline at end of file
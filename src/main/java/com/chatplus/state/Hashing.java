@@ -0,0 +1,59 @@
+package com.chatplus.state;
+
+import java.util.UUID;
+
+/**
+ * Small 64-bit hashing helpers shared by the per-player state tables.
+ */
+public final class Hashing {
+    
+    private Hashing() {
+    }
+    
+    /**
+     * 64-bit hash of a message, used instead of keeping the message itself around.
+     */
+    public static long hash64(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix64(hash ^ text.length());
+    }
+    
+    // Murmur3 finalizer, spreads the low-entropy FNV bits over the whole word
+    public static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+    
+    public static long mix(UUID id) {
+        return mix(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+    
+    public static long mix(long high, long low) {
+        return mix64(high ^ Long.rotateLeft(low, 32));
+    }
+    
+    /**
+     * Packs a block position into one long (26 bits x, 26 bits z, 12 bits y).
+     */
+    public static long packBlock(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+    
+    /**
+     * Squared distance between two positions packed by {@link #packBlock}.
+     */
+    public static long blockDistanceSquared(long a, long b) {
+        long dx = (a >> 38) - (b >> 38);
+        long dz = ((a << 26) >> 38) - ((b << 26) >> 38);
+        long dy = ((a << 52) >> 52) - ((b << 52) >> 52);
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.chatplus.state;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small fixed set of message fingerprints that crossed the flood threshold,
+ * each blocked until its entry expires. Fingerprints match by Hamming distance,
+ * so slight variations of a blocked message stay blocked. Lookups scan every
+ * slot, which is cheap at this size, and updates are lock-free.
+ */
+public final class HeavyHitters {
+    
+    private final AtomicReferenceArray<Entry> entries;
+    
+    public HeavyHitters(int capacity) {
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+    
+    /**
+     * Returns the live entry matching the fingerprint, or null.
+     */
+    public Entry find(long fingerprint, int maxDistance, long now) {
+        for (int i = 0; i < entries.length(); i++) {
+            Entry entry = entries.get(i);
+            if (entry != null && entry.expiresAt > now && SimHash.distance(entry.fingerprint, fingerprint) <= maxDistance) {
+                return entry;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Adds or extends an entry. When the set is full the entry that expires first
+     * is evicted. Returns true when the fingerprint was not blocked before.
+     */
+    public boolean offer(long fingerprint, int maxDistance, long count, long now, long expiresAt, String sample) {
+        while (true) {
+            int victim = -1;
+            long victimExpiry = Long.MAX_VALUE;
+            Entry victimEntry = null;
+            
+            for (int i = 0; i < entries.length(); i++) {
+                Entry entry = entries.get(i);
+                if (entry != null && entry.expiresAt > now && SimHash.distance(entry.fingerprint, fingerprint) <= maxDistance) {
+                    Entry extended = new Entry(entry.fingerprint, Math.max(entry.count, count),
+                        Math.max(entry.expiresAt, expiresAt), entry.sample);
+                    if (entries.compareAndSet(i, entry, extended)) {
+                        return false;
+                    }
+                    // Lost a race with another update, start over
+                    victim = -2;
+                    break;
+                }
+                
+                long expiry = entry == null ? Long.MIN_VALUE : entry.expiresAt;
+                if (expiry < victimExpiry) {
+                    victim = i;
+                    victimExpiry = expiry;
+                    victimEntry = entry;
+                }
+            }
+            
+            if (victim == -2) continue;
+            if (entries.compareAndSet(victim, victimEntry, new Entry(fingerprint, count, expiresAt, sample))) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Live entries, highest count first.
+     */
+    public List<Entry> getEntries(long now) {
+        List<Entry> live = new ArrayList<>();
+        for (int i = 0; i < entries.length(); i++) {
+            Entry entry = entries.get(i);
+            if (entry != null && entry.expiresAt > now) {
+                live.add(entry);
+            }
+        }
+        live.sort(Comparator.comparingLong(Entry::getCount).reversed());
+        return live;
+    }
+    
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+    
+    public static final class Entry {
+        
+        private final long fingerprint;
+        private final long count;
+        private final long expiresAt;
+        private final String sample;
+        
+        Entry(long fingerprint, long count, long expiresAt, String sample) {
+            this.fingerprint = fingerprint;
+            this.count = count;
+            this.expiresAt = expiresAt;
+            this.sample = sample;
+        }
+        
+        public long getFingerprint() {
+            return fingerprint;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+        
+        /**
+         * The message that pushed the fingerprint over the threshold.
+         */
+        public String getSample() {
+            return sample;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.chatplus.state;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * A copy of one player's row in {@link PlayerStateTable}, used to save and restore
+ * the table. Instances are reused while iterating, so copy what you need.
+ */
+public final class PlayerState {
+    
+    long idHigh;
+    long idLow;
+    long lastMessageTime;
+    long messageHash;
+    long position;
+    int messageCount;
+    // Most recent fingerprints and when they were sent, oldest first
+    final long[] history = new long[PlayerStateTable.HISTORY];
+    final long[] historyTime = new long[PlayerStateTable.HISTORY];
+    int historySize;
+    
+    public UUID getId() {
+        return new UUID(idHigh, idLow);
+    }
+    
+    public long getLastMessageTime() {
+        return lastMessageTime;
+    }
+    
+    public int getMessageCount() {
+        return messageCount;
+    }
+    
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(idHigh);
+        out.writeLong(idLow);
+        out.writeLong(lastMessageTime);
+        out.writeLong(messageHash);
+        out.writeLong(position);
+        out.writeInt(messageCount);
+        out.writeByte(historySize);
+        for (int i = 0; i < historySize; i++) {
+            out.writeLong(history[i]);
+            out.writeLong(historyTime[i]);
+        }
+    }
+    
+    public void read(DataInput in) throws IOException {
+        idHigh = in.readLong();
+        idLow = in.readLong();
+        lastMessageTime = in.readLong();
+        messageHash = in.readLong();
+        position = in.readLong();
+        messageCount = in.readInt();
+        historySize = Math.min(in.readUnsignedByte(), PlayerStateTable.HISTORY);
+        for (int i = 0; i < historySize; i++) {
+            history[i] = in.readLong();
+            historyTime[i] = in.readLong();
+        }
+    }
+}
\ No newline at end of file
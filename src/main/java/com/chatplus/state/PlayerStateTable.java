@@ -0,0 +1,577 @@
+package com.chatplus.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Per-player chat state in flat primitive arrays, keyed by the two longs of the
+ * player's UUID. Replaces the boxed UUID -> Long / String / Location maps: each
+ * player costs a few longs instead of several map nodes, a boxed Long, a copy of
+ * the last message and a Location.
+ * <p>
+ * The table is split into independently locked segments so chat threads for
+ * different players rarely contend, and there is no global lock.
+ * <p>
+ * Each player also keeps a ring of the SimHash fingerprints of their last
+ * {@link #HISTORY} messages, with the time each was sent, for the duplicate checks.
+ * <p>
+ * The position column holds the block the player stood on when movement was first
+ * seen after their last message, or one of the {@link #UNANCHORED} and
+ * {@link #MOVED} markers. The move listener keeps it up to date so the chat path
+ * only has to read it.
+ */
+public final class PlayerStateTable {
+    
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_CAPACITY = 16;
+    
+    /** Fingerprints kept per player. */
+    public static final int HISTORY = 8;
+    
+    /** Position after a message, before the player's next move sets the anchor block. */
+    public static final long UNANCHORED = Long.MIN_VALUE;
+    /** Position once the player has moved far enough from the anchor block. */
+    public static final long MOVED = Long.MIN_VALUE + 1;
+    
+    private final Segment[] segments = new Segment[SEGMENTS];
+    
+    public PlayerStateTable() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(INITIAL_CAPACITY);
+        }
+    }
+    
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 58)];
+    }
+    
+    /**
+     * Checks the cooldown and reserves the next window in one step. A player who
+     * has moved since the last message is let through when movement resets the
+     * cooldown.
+     */
+    public boolean tryAcquire(UUID id, long now, long cooldownMillis, boolean movementReset) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0) {
+                slot = segment.insert(id, hash);
+            } else {
+                boolean moved = movementReset && segment.position[slot] == MOVED;
+                if (!moved && now - segment.lastMessageTime[slot] < cooldownMillis) {
+                    return false;
+                }
+            }
+            segment.reserve(slot, now);
+            return true;
+        }
+    }
+    
+    /**
+     * Stores a message that was let through: it starts the cooldown window and
+     * becomes the last message and newest fingerprint for the duplicate checks.
+     */
+    public void record(UUID id, long now, long messageHash, long fingerprint) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0) {
+                slot = segment.insert(id, hash);
+            }
+            segment.reserve(slot, now);
+            segment.remember(slot, now, messageHash, fingerprint);
+        }
+    }
+    
+    /**
+     * Returns the time of the player's last message, or 0 when there is none.
+     */
+    public long getLastMessageTime(UUID id) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            return slot < 0 ? 0 : segment.lastMessageTime[slot];
+        }
+    }
+    
+    /**
+     * True when the player's last message has the given hash and was sent at or after {@code since}.
+     */
+    public boolean isLastMessage(UUID id, long messageHash, long since) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0 || segment.messageCount[slot] == 0 || segment.messageHash[slot] != messageHash) {
+                return false;
+            }
+            return segment.historyTime[slot * HISTORY + (segment.messageCount[slot] - 1) % HISTORY] >= since;
+        }
+    }
+    
+    /**
+     * True when one of the player's last {@code window} messages sent at or after
+     * {@code since} has a fingerprint within {@code maxDistance} bits of the given one.
+     */
+    public boolean isNearDuplicate(UUID id, long fingerprint, int window, int maxDistance, long since) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0) {
+                return false;
+            }
+            
+            int count = segment.messageCount[slot];
+            int base = slot * HISTORY;
+            for (int i = 1, n = Math.min(Math.min(window, HISTORY), count); i <= n; i++) {
+                int entry = base + (count - i) % HISTORY;
+                if (segment.historyTime[entry] < since) {
+                    // Newest first, so the rest are older still
+                    return false;
+                }
+                if (SimHash.distance(segment.history[entry], fingerprint) <= maxDistance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    public int getMessageCount(UUID id) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            return slot < 0 ? 0 : segment.messageCount[slot];
+        }
+    }
+    
+    /**
+     * Clears the cooldown if the player has moved since their last message.
+     * Returns true when it was cleared.
+     */
+    public boolean resetIfMoved(UUID id) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0 || segment.lastMessageTime[slot] == 0 || segment.position[slot] != MOVED) {
+                return false;
+            }
+            segment.lastMessageTime[slot] = 0;
+            segment.position[slot] = UNANCHORED;
+            return true;
+        }
+    }
+    
+    /**
+     * Records a block change. The first move after a message anchors the player at
+     * {@code from}; once {@code to} is at least {@code distance} blocks from the
+     * anchor the player counts as moved. Positions are packed by
+     * {@link Hashing#packBlock}. Returns true when the player just became moved.
+     */
+    public boolean trackMove(UUID id, long from, long to, int distance) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0 || segment.position[slot] == MOVED) {
+                return false;
+            }
+            if (segment.position[slot] == UNANCHORED) {
+                segment.position[slot] = from;
+            }
+            if (Hashing.blockDistanceSquared(segment.position[slot], to) < (long) distance * distance) {
+                return false;
+            }
+            segment.position[slot] = MOVED;
+            return true;
+        }
+    }
+    
+    /**
+     * Counts the player as moved regardless of distance, e.g. after a world change.
+     * Returns true when the player was not already moved.
+     */
+    public boolean markMoved(UUID id) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0 || segment.position[slot] == MOVED) {
+                return false;
+            }
+            segment.position[slot] = MOVED;
+            return true;
+        }
+    }
+    
+    /**
+     * Copies the player's row into {@code out}. Returns false when the player has no row.
+     */
+    public boolean copyTo(UUID id, PlayerState out) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0) {
+                return false;
+            }
+            segment.copy(slot, out);
+            return true;
+        }
+    }
+    
+    /**
+     * Replaces the player's row with a saved copy.
+     */
+    public void restore(PlayerState state) {
+        UUID id = state.getId();
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0) {
+                slot = segment.insert(id, hash);
+            }
+            segment.restore(slot, state);
+        }
+    }
+    
+    /**
+     * Replaces the player's row with the copy if the copy has the later message.
+     * The copy's position is not taken: it came from another server, so the player
+     * is unanchored here until they next move. Returns true when it was applied.
+     */
+    public boolean restoreIfNewer(PlayerState state) {
+        UUID id = state.getId();
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            int slot = segment.find(id, hash);
+            if (slot < 0) {
+                slot = segment.insert(id, hash);
+            } else if (segment.lastMessageTime[slot] >= state.lastMessageTime) {
+                return false;
+            }
+            segment.restore(slot, state);
+            segment.position[slot] = UNANCHORED;
+            return true;
+        }
+    }
+    
+    /**
+     * Visits a copy of every row, one segment at a time. The rows of a segment are
+     * copied under its lock and visited after releasing it, so a slow action never
+     * stalls chat threads. The copies are reused from one segment to the next.
+     */
+    public void forEach(Consumer<PlayerState> action) {
+        List<PlayerState> rows = new ArrayList<>();
+        for (Segment segment : segments) {
+            int count = 0;
+            synchronized (segment) {
+                for (int slot = 0; slot < segment.used.length; slot++) {
+                    if (segment.used[slot]) {
+                        if (count == rows.size()) {
+                            rows.add(new PlayerState());
+                        }
+                        segment.copy(slot, rows.get(count++));
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                action.accept(rows.get(i));
+            }
+        }
+    }
+    
+    /**
+     * Removes every row whose last message is older than the cutoff and hands the
+     * removed ids to the callback.
+     */
+    public void removeOlderThan(long cutoff, Consumer<UUID> removed) {
+        List<UUID> expired = new ArrayList<>();
+        for (Segment segment : segments) {
+            expired.clear();
+            synchronized (segment) {
+                for (int slot = 0; slot < segment.used.length; slot++) {
+                    if (segment.used[slot] && segment.lastMessageTime[slot] < cutoff) {
+                        expired.add(new UUID(segment.idHigh[slot], segment.idLow[slot]));
+                    }
+                }
+                // Removing moves rows around, so collect first
+                for (UUID id : expired) {
+                    segment.remove(id, Hashing.mix(id));
+                }
+            }
+            expired.forEach(removed);
+        }
+    }
+    
+    public void remove(UUID id) {
+        long hash = Hashing.mix(id);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            segment.remove(id, hash);
+        }
+    }
+    
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear(INITIAL_CAPACITY);
+            }
+        }
+    }
+    
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Approximate retained heap of the table, including unused slots.
+     */
+    public long footprintBytes() {
+        long bytes = 16 + 16 + 4L * SEGMENTS;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.footprintBytes();
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Approximate retained heap of a table holding the given number of players.
+     */
+    public static long estimateFootprint(int players) {
+        long bytes = 16 + 16 + 4L * SEGMENTS;
+        int perSegment = (players + SEGMENTS - 1) / SEGMENTS;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < perSegment * 2) {
+            capacity <<= 1;
+        }
+        return bytes + SEGMENTS * Segment.footprintBytes(capacity);
+    }
+    
+    /**
+     * Approximate retained heap of the same state kept in three HashMaps of
+     * UUID -> Long, UUID -> String and UUID -> Location, assuming compressed oops
+     * and Latin-1 strings. The UUID keys are not counted since the Player object
+     * holds them anyway.
+     */
+    public static long estimateBoxedFootprint(int players, int averageMessageLength) {
+        int buckets = 16;
+        while (buckets * 3 / 4 < players) {
+            buckets <<= 1;
+        }
+        long tables = 3L * (16 + 4L * buckets);
+        long nodes = 3L * 32 * players;
+        long longs = 16L * players;
+        long strings = players * (24L + ((16 + averageMessageLength + 7) & ~7));
+        long locations = 48L * players;
+        return tables + nodes + longs + strings + locations;
+    }
+    
+    private static final class Segment {
+        
+        // Columns of an open-addressing table with linear probing
+        long[] idHigh;
+        long[] idLow;
+        boolean[] used;
+        long[] lastMessageTime;
+        long[] messageHash;
+        long[] position;
+        int[] messageCount;
+        // HISTORY fingerprints per slot, written round-robin by messageCount
+        long[] history;
+        // When each fingerprint in history was sent
+        long[] historyTime;
+        int size;
+        
+        Segment(int capacity) {
+            clear(capacity);
+        }
+        
+        void clear(int capacity) {
+            idHigh = new long[capacity];
+            idLow = new long[capacity];
+            used = new boolean[capacity];
+            lastMessageTime = new long[capacity];
+            messageHash = new long[capacity];
+            position = new long[capacity];
+            messageCount = new int[capacity];
+            history = new long[capacity * HISTORY];
+            historyTime = new long[capacity * HISTORY];
+            size = 0;
+        }
+        
+        void reserve(int slot, long now) {
+            lastMessageTime[slot] = now;
+            position[slot] = UNANCHORED;
+        }
+        
+        void remember(int slot, long now, long messageHash, long fingerprint) {
+            this.messageHash[slot] = messageHash;
+            int entry = slot * HISTORY + messageCount[slot] % HISTORY;
+            history[entry] = fingerprint;
+            historyTime[entry] = now;
+            messageCount[slot]++;
+        }
+        
+        void copy(int slot, PlayerState out) {
+            out.idHigh = idHigh[slot];
+            out.idLow = idLow[slot];
+            out.lastMessageTime = lastMessageTime[slot];
+            out.messageHash = messageHash[slot];
+            out.position = position[slot];
+            out.messageCount = messageCount[slot];
+            
+            int count = messageCount[slot];
+            out.historySize = Math.min(count, HISTORY);
+            for (int i = 0; i < out.historySize; i++) {
+                int entry = slot * HISTORY + (count - out.historySize + i) % HISTORY;
+                out.history[i] = history[entry];
+                out.historyTime[i] = historyTime[entry];
+            }
+        }
+        
+        void restore(int slot, PlayerState state) {
+            lastMessageTime[slot] = state.lastMessageTime;
+            messageHash[slot] = state.messageHash;
+            position[slot] = state.position;
+            messageCount[slot] = state.messageCount;
+            
+            int count = state.messageCount;
+            Arrays.fill(history, slot * HISTORY, (slot + 1) * HISTORY, 0);
+            Arrays.fill(historyTime, slot * HISTORY, (slot + 1) * HISTORY, 0);
+            for (int i = 0; i < state.historySize; i++) {
+                int entry = slot * HISTORY + (count - state.historySize + i) % HISTORY;
+                history[entry] = state.history[i];
+                historyTime[entry] = state.historyTime[i];
+            }
+        }
+        
+        int find(UUID id, long hash) {
+            long high = id.getMostSignificantBits();
+            long low = id.getLeastSignificantBits();
+            int mask = used.length - 1;
+            for (int slot = (int) hash & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (idHigh[slot] == high && idLow[slot] == low) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+        
+        int insert(UUID id, long hash) {
+            if ((size + 1) * 2 > used.length) {
+                resize(used.length * 2);
+            }
+            
+            int mask = used.length - 1;
+            int slot = (int) hash & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            idHigh[slot] = id.getMostSignificantBits();
+            idLow[slot] = id.getLeastSignificantBits();
+            size++;
+            return slot;
+        }
+        
+        void remove(UUID id, long hash) {
+            int slot = find(id, hash);
+            if (slot < 0) {
+                return;
+            }
+            
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            int mask = used.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (used[next]) {
+                int home = (int) Hashing.mix(idHigh[next], idLow[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    move(next, hole);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[hole] = false;
+            lastMessageTime[hole] = 0;
+            messageHash[hole] = 0;
+            position[hole] = 0;
+            messageCount[hole] = 0;
+            Arrays.fill(history, hole * HISTORY, (hole + 1) * HISTORY, 0);
+            Arrays.fill(historyTime, hole * HISTORY, (hole + 1) * HISTORY, 0);
+            size--;
+        }
+        
+        private void move(int from, int to) {
+            idHigh[to] = idHigh[from];
+            idLow[to] = idLow[from];
+            lastMessageTime[to] = lastMessageTime[from];
+            messageHash[to] = messageHash[from];
+            position[to] = position[from];
+            messageCount[to] = messageCount[from];
+            System.arraycopy(history, from * HISTORY, history, to * HISTORY, HISTORY);
+            System.arraycopy(historyTime, from * HISTORY, historyTime, to * HISTORY, HISTORY);
+        }
+        
+        private void resize(int capacity) {
+            long[] oldHigh = idHigh;
+            long[] oldLow = idLow;
+            boolean[] oldUsed = used;
+            long[] oldTime = lastMessageTime;
+            long[] oldHash = messageHash;
+            long[] oldPosition = position;
+            int[] oldCount = messageCount;
+            long[] oldHistory = history;
+            long[] oldHistoryTime = historyTime;
+            
+            clear(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (!oldUsed[i]) continue;
+                int slot = (int) Hashing.mix(oldHigh[i], oldLow[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                idHigh[slot] = oldHigh[i];
+                idLow[slot] = oldLow[i];
+                lastMessageTime[slot] = oldTime[i];
+                messageHash[slot] = oldHash[i];
+                position[slot] = oldPosition[i];
+                messageCount[slot] = oldCount[i];
+                System.arraycopy(oldHistory, i * HISTORY, history, slot * HISTORY, HISTORY);
+                System.arraycopy(oldHistoryTime, i * HISTORY, historyTime, slot * HISTORY, HISTORY);
+                size++;
+            }
+        }
+        
+        long footprintBytes() {
+            return footprintBytes(used.length);
+        }
+        
+        static long footprintBytes(int capacity) {
+            // Five long columns, one int column, one boolean column and the fingerprint and time rings
+            return 32 + 9 * 16L + capacity * (5 * 8L + 4 + 1 + HISTORY * 16L);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.chatplus.state;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit SimHash fingerprints of chat messages. Messages that differ by a few
+ * characters get fingerprints that differ in only a few bits, so near-duplicates
+ * can be found by Hamming distance instead of by keeping old messages around.
+ */
+public final class SimHash {
+    
+    private static final ThreadLocal<int[]> WEIGHTS = ThreadLocal.withInitial(() -> new int[64]);
+    private static final ThreadLocal<Last> LAST = ThreadLocal.withInitial(Last::new);
+    
+    private SimHash() {
+    }
+    
+    /**
+     * Fingerprints a message in one pass. Case, punctuation and whitespace are ignored,
+     * runs of the same character count at most twice, and every three consecutive
+     * remaining characters form one feature.
+     */
+    public static long fingerprint(CharSequence text) {
+        int[] weights = WEIGHTS.get();
+        Arrays.fill(weights, 0);
+        
+        long shingle = 0;
+        int kept = 0;
+        char last = 0;
+        int run = 0;
+        
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (!Character.isLetterOrDigit(c)) continue;
+            
+            // "hellooooo" and "helloo" should look alike
+            run = c == last ? run + 1 : 1;
+            last = c;
+            if (run > 2) continue;
+            
+            shingle = (shingle << 16) | c;
+            if (++kept < 3) continue;
+            
+            long feature = Hashing.mix64(shingle & 0xFFFFFFFFFFFFL);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += (int) ((feature >>> bit) & 1) * 2 - 1;
+            }
+        }
+        
+        if (kept < 3) {
+            // Too short for shingles; fall back to an exact hash of what was kept
+            return Hashing.mix64(shingle ^ ((long) kept << 56));
+        }
+        
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+    
+    /**
+     * Same as {@link #fingerprint}, but remembers the last message instance per
+     * thread, so the chat stages looking at one message share a single pass.
+     */
+    public static long cached(String message) {
+        Last last = LAST.get();
+        if (last.message != message) {
+            last.value = fingerprint(message);
+            last.message = message;
+        }
+        return last.value;
+    }
+    
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+    
+    private static final class Last {
+        String message;
+        long value;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+package com.chatplus.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of chat state. Records are written in batches, each framed
+ * by its length and a CRC32, so a batch cut short by a crash is detected and
+ * dropped on the next load instead of corrupting what follows. Replaying the log
+ * in order gives the latest state; {@link #rewrite} compacts it into one record
+ * per live entry.
+ * <p>
+ * Not thread-safe: a single writer thread owns the instance.
+ */
+public final class StateLog implements Closeable {
+    
+    private static final int MAGIC = 0x43505354; // "CPST"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int BATCH_HEADER_BYTES = 8;
+    // Batches are written out once they get this big, even mid-snapshot
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+    
+    private static final byte PLAYER = 1;
+    private static final byte REMOVED = 2;
+    private static final byte MUTES = 3;
+    
+    private final Path file;
+    private FileChannel channel;
+    private ByteBuffer batch = ByteBuffer.allocate(64 * 1024);
+    private long discardedBytes;
+    
+    private StateLog(Path file) {
+        this.file = file;
+    }
+    
+    public interface Visitor {
+        
+        void player(PlayerState state, long bucket);
+        
+        void removed(UUID id);
+        
+        void mutes(boolean global, List<String> worlds);
+    }
+    
+    /**
+     * Replays an existing log into the visitor, then opens it for appending. A torn
+     * or corrupt tail is cut off; see {@link #getDiscardedBytes}.
+     */
+    public static StateLog open(Path file, Visitor visitor) throws IOException {
+        StateLog log = new StateLog(file);
+        long valid = Files.exists(file) ? replay(file, visitor) : 0;
+        long size = Files.exists(file) ? Files.size(file) : 0;
+        
+        log.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (valid < HEADER_BYTES) {
+            log.channel.truncate(0);
+            log.writeHeader();
+        } else if (valid < size) {
+            log.channel.truncate(valid);
+        }
+        log.discardedBytes = valid < HEADER_BYTES ? size : size - valid;
+        log.channel.position(log.channel.size());
+        return log;
+    }
+    
+    // Returns the length of the valid prefix, or 0 when the header is wrong
+    private static long replay(Path file, Visitor visitor) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < HEADER_BYTES) {
+                return 0;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("State log too large: " + size + " bytes");
+            }
+            
+            // Read into the heap rather than mapping: open() truncates the file right after,
+            // which a live mapping would not allow on every platform
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer) < 0) break;
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return 0;
+            }
+            
+            PlayerState state = new PlayerState();
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= BATCH_HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    return start;
+                }
+                
+                ByteBuffer records = buffer.slice().limit(length);
+                crc.reset();
+                crc.update(records.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                
+                readBatch(records, state, visitor);
+                buffer.position(buffer.position() + length);
+            }
+            return buffer.position();
+        }
+    }
+    
+    private static void readBatch(ByteBuffer records, PlayerState state, Visitor visitor) throws IOException {
+        while (records.hasRemaining()) {
+            byte type = records.get();
+            switch (type) {
+                case PLAYER:
+                    state.idHigh = records.getLong();
+                    state.idLow = records.getLong();
+                    state.lastMessageTime = records.getLong();
+                    state.messageHash = records.getLong();
+                    state.position = records.getLong();
+                    state.messageCount = records.getInt();
+                    state.historySize = Math.min(records.get(), PlayerStateTable.HISTORY);
+                    for (int i = 0; i < state.historySize; i++) {
+                        state.history[i] = records.getLong();
+                        state.historyTime[i] = records.getLong();
+                    }
+                    visitor.player(state, records.getLong());
+                    break;
+                case REMOVED:
+                    visitor.removed(new UUID(records.getLong(), records.getLong()));
+                    break;
+                case MUTES:
+                    boolean global = records.get() != 0;
+                    int count = records.getInt();
+                    List<String> worlds = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        byte[] name = new byte[records.getShort() & 0xFFFF];
+                        records.get(name);
+                        worlds.add(new String(name, StandardCharsets.UTF_8));
+                    }
+                    visitor.mutes(global, worlds);
+                    break;
+                default:
+                    // The CRC matched, so this was written by a newer version
+                    throw new IOException("Unknown state record type " + type);
+            }
+        }
+    }
+    
+    public void putPlayer(PlayerState state, long bucket) throws IOException {
+        ensure(1 + 5 * 8 + 4 + 1 + state.historySize * 16 + 8);
+        batch.put(PLAYER)
+            .putLong(state.idHigh)
+            .putLong(state.idLow)
+            .putLong(state.lastMessageTime)
+            .putLong(state.messageHash)
+            .putLong(state.position)
+            .putInt(state.messageCount)
+            .put((byte) state.historySize);
+        for (int i = 0; i < state.historySize; i++) {
+            batch.putLong(state.history[i]).putLong(state.historyTime[i]);
+        }
+        batch.putLong(bucket);
+        flushIfFull();
+    }
+    
+    public void putRemoved(UUID id) throws IOException {
+        ensure(1 + 2 * 8);
+        batch.put(REMOVED)
+            .putLong(id.getMostSignificantBits())
+            .putLong(id.getLeastSignificantBits());
+        flushIfFull();
+    }
+    
+    public void putMutes(boolean global, Collection<String> worlds) throws IOException {
+        List<byte[]> names = new ArrayList<>(worlds.size());
+        int bytes = 1 + 1 + 4;
+        for (String world : worlds) {
+            byte[] name = world.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            bytes += 2 + name.length;
+        }
+        
+        ensure(bytes);
+        batch.put(MUTES).put((byte) (global ? 1 : 0)).putInt(names.size());
+        for (byte[] name : names) {
+            batch.putShort((short) name.length).put(name);
+        }
+        flushIfFull();
+    }
+    
+    /**
+     * Appends the pending records as one batch. Does nothing when there are none.
+     */
+    public void flush() throws IOException {
+        if (batch.position() == 0) {
+            return;
+        }
+        
+        batch.flip();
+        CRC32 crc = new CRC32();
+        crc.update(batch.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_BYTES)
+            .putInt(batch.remaining())
+            .putInt((int) crc.getValue())
+            .flip();
+        
+        ByteBuffer[] buffers = {header, batch};
+        while (header.hasRemaining() || batch.hasRemaining()) {
+            channel.write(buffers);
+        }
+        batch.clear();
+    }
+    
+    /**
+     * Replaces the log with a compacted one. The snapshot writes the full current
+     * state into the fresh log, which then atomically takes the place of this one.
+     * If that fails the fresh log is deleted and appending continues on this one.
+     */
+    public void rewrite(Snapshot snapshot) throws IOException {
+        flush();
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        StateLog compacted = new StateLog(temp);
+        compacted.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            try {
+                compacted.writeHeader();
+                snapshot.write(compacted);
+                compacted.flush();
+                compacted.channel.force(false);
+            } finally {
+                compacted.channel.close();
+            }
+            
+            channel.close();
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // The compacted log if the move went through, the old one otherwise
+                channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+    
+    public interface Snapshot {
+        
+        void write(StateLog log) throws IOException;
+    }
+    
+    public long size() throws IOException {
+        return channel.size() + batch.position();
+    }
+    
+    /**
+     * Bytes of a torn or unreadable tail that were dropped when the log was opened.
+     */
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+    
+    /**
+     * Rough size of a compacted log holding this many players.
+     */
+    public static long estimateSize(int players) {
+        return HEADER_BYTES + players * (1 + 5 * 8L + 4 + 1 + 2 * 16 + 8);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+    
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+    
+    private void ensure(int bytes) {
+        if (batch.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + bytes));
+            batch.flip();
+            grown.put(batch);
+            batch = grown;
+        }
+    }
+    
+    private void flushIfFull() throws IOException {
+        if (batch.position() >= MAX_BATCH_BYTES) {
+            flush();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.chatplus.state;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player token buckets kept as a single "theoretical arrival time" each (the
+ * GCRA form of a token bucket). Refill is implied by the clock, so there is no
+ * sweep, and a take is one compare-and-set on the player's AtomicLong.
+ */
+public final class TokenBuckets {
+    
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    
+    /** Returned by {@link #getArrival} for a player without a bucket. */
+    public static final long NONE = Long.MIN_VALUE;
+    
+    private final Map<UUID, AtomicLong> buckets = new ConcurrentHashMap<>();
+    
+    /**
+     * Takes {@code cost} tokens if the bucket has them. A message costing more than the
+     * whole bucket needs a full bucket rather than being refused forever.
+     */
+    public boolean tryConsume(UUID id, long nowMillis, double cost, double capacity, double refillPerSecond) {
+        long now = nowMillis * 1000;
+        long tolerance = toMicros(capacity, refillPerSecond);
+        long increment = Math.min(toMicros(cost, refillPerSecond), tolerance);
+        
+        AtomicLong bucket = bucketOf(id);
+        while (true) {
+            long arrival = bucket.get();
+            long base = Math.max(arrival, now - tolerance);
+            long next = base + increment;
+            if (next > now) {
+                return false;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Milliseconds until {@code cost} tokens are available, 0 if they are now.
+     */
+    public long getWaitMillis(UUID id, long nowMillis, double cost, double capacity, double refillPerSecond) {
+        AtomicLong bucket = buckets.get(id);
+        if (bucket == null) {
+            return 0;
+        }
+        
+        long now = nowMillis * 1000;
+        long tolerance = toMicros(capacity, refillPerSecond);
+        long increment = Math.min(toMicros(cost, refillPerSecond), tolerance);
+        long next = Math.max(bucket.get(), now - tolerance) + increment;
+        return next > now ? (next - now + 999) / 1000 : 0;
+    }
+    
+    public double getTokens(UUID id, long nowMillis, double capacity, double refillPerSecond) {
+        AtomicLong bucket = buckets.get(id);
+        if (bucket == null) {
+            return capacity;
+        }
+        
+        long now = nowMillis * 1000;
+        long tolerance = toMicros(capacity, refillPerSecond);
+        long used = Math.max(bucket.get(), now - tolerance) - (now - tolerance);
+        return capacity - used * refillPerSecond / MICROS_PER_SECOND;
+    }
+    
+    /**
+     * The raw bucket state for saving, or {@link #NONE} when the player has no bucket.
+     */
+    public long getArrival(UUID id) {
+        AtomicLong bucket = buckets.get(id);
+        return bucket == null ? NONE : bucket.get();
+    }
+    
+    public void setArrival(UUID id, long arrival) {
+        if (arrival == NONE) {
+            buckets.remove(id);
+        } else {
+            buckets.put(id, new AtomicLong(arrival));
+        }
+    }
+    
+    /**
+     * Merges bucket state from elsewhere, keeping whichever of the two has used more.
+     */
+    public void mergeArrival(UUID id, long arrival) {
+        if (arrival != NONE) {
+            bucketOf(id).accumulateAndGet(arrival, Math::max);
+        }
+    }
+    
+    public void remove(UUID id) {
+        buckets.remove(id);
+    }
+    
+    public void clear() {
+        buckets.clear();
+    }
+    
+    public int size() {
+        return buckets.size();
+    }
+    
+    private AtomicLong bucketOf(UUID id) {
+        AtomicLong bucket = buckets.get(id);
+        if (bucket != null) {
+            return bucket;
+        }
+        // A new bucket starts full
+        AtomicLong created = new AtomicLong(Long.MIN_VALUE / 2);
+        AtomicLong existing = buckets.putIfAbsent(id, created);
+        return existing != null ? existing : created;
+    }
+    
+    private static long toMicros(double tokens, double refillPerSecond) {
+        return (long) (tokens * MICROS_PER_SECOND / Math.max(refillPerSecond, 1e-6));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.chatplus.sync;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Sync through a directory every server can reach, such as a shared volume. Each
+ * server appends framed batches to its own {@code <server-id>.sync} file and tails
+ * everyone else's. Every file starts with a random generation, written again
+ * whenever the file starts over: on startup and when it grows past the size
+ * limit. Readers follow a peer to the start of its file as soon as the generation
+ * changes, even if the new file has already grown past where they were. A server
+ * that goes away just leaves a file that stops growing.
+ */
+public final class FileTransport implements SyncTransport {
+    
+    private static final String SUFFIX = ".sync";
+    private static final int MAGIC = 0x43505346; // "CPSF"
+    private static final int FILE_HEADER_BYTES = 12;
+    private static final int FRAME_HEADER_BYTES = 8;
+    
+    private final Path directory;
+    private final Path ownFile;
+    private final long maxBytes;
+    private final FileChannel out;
+    // Generation and read position in every peer file seen so far
+    private final Map<Path, PeerPosition> peers = new HashMap<>();
+    
+    public FileTransport(Path directory, String serverId, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.ownFile = directory.resolve(serverId + SUFFIX);
+        this.maxBytes = maxBytes;
+        
+        Files.createDirectories(directory);
+        // Start empty; what was written before the restart is stale anyway
+        this.out = FileChannel.open(ownFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        startFile();
+    }
+    
+    // Empties the file and writes a fresh generation
+    private void startFile() throws IOException {
+        out.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES)
+            .putInt(MAGIC)
+            .putLong(ThreadLocalRandom.current().nextLong())
+            .flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += out.write(header, position);
+        }
+    }
+    
+    @Override
+    public void publish(byte[] batch) throws IOException {
+        if (out.size() + FRAME_HEADER_BYTES + batch.length > maxBytes) {
+            startFile();
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(batch);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + batch.length)
+            .putInt(batch.length)
+            .putInt((int) crc.getValue())
+            .put(batch)
+            .flip();
+        long position = out.size();
+        while (frame.hasRemaining()) {
+            position += out.write(frame, position);
+        }
+    }
+    
+    @Override
+    public List<byte[]> poll() throws IOException {
+        List<byte[]> received = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (!file.equals(ownFile)) {
+                    readPeer(file, received);
+                }
+            }
+        }
+        return received;
+    }
+    
+    private void readPeer(Path file, List<byte[]> received) {
+        PeerPosition peer = peers.computeIfAbsent(file, ignored -> new PeerPosition());
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < FILE_HEADER_BYTES) {
+                // Being started over right now
+                return;
+            }
+            
+            ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            readFully(in, fileHeader, 0);
+            if (fileHeader.getInt(0) != MAGIC) {
+                return;
+            }
+            long generation = fileHeader.getLong(4);
+            if (peer.offset == 0 || generation != peer.generation) {
+                // New peer, or the peer started its file over
+                peer.generation = generation;
+                peer.offset = FILE_HEADER_BYTES;
+            }
+            
+            long offset = peer.offset;
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+            while (size - offset >= FRAME_HEADER_BYTES) {
+                header.clear();
+                readFully(in, header, offset);
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length < 0 || size - offset - FRAME_HEADER_BYTES < length) {
+                    // Not fully written yet
+                    break;
+                }
+                
+                ByteBuffer body = ByteBuffer.allocate(length);
+                readFully(in, body, offset + FRAME_HEADER_BYTES);
+                
+                CRC32 crc = new CRC32();
+                crc.update(body.array());
+                if ((int) crc.getValue() != checksum) {
+                    // The length can't be trusted either, so don't skip ahead by it. Retry
+                    // from here next poll; a frame that stays bad is left behind once the
+                    // peer starts its file over.
+                    break;
+                }
+                received.add(body.array());
+                offset += FRAME_HEADER_BYTES + length;
+                peer.offset = offset;
+            }
+        } catch (IOException e) {
+            // An unreadable or vanished peer file is skipped; the others still sync
+        }
+    }
+    
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    private static final class PeerPosition {
+        long generation;
+        // 0 until the file header has been read
+        long offset;
+    }
+}
\ No newline at end of file
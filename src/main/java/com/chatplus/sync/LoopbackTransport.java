@@ -0,0 +1,52 @@
+package com.chatplus.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Delivers batches between transports on the same channel within one JVM. Meant
+ * for trying sync out, and for tests, without any shared infrastructure.
+ */
+public final class LoopbackTransport implements SyncTransport {
+    
+    private static final Map<String, Set<LoopbackTransport>> CHANNELS = new ConcurrentHashMap<>();
+    
+    private final String channel;
+    private final Queue<byte[]> inbox = new ConcurrentLinkedQueue<>();
+    
+    public LoopbackTransport(String channel) {
+        this.channel = channel;
+        CHANNELS.computeIfAbsent(channel, key -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+    
+    @Override
+    public void publish(byte[] batch) {
+        for (LoopbackTransport peer : CHANNELS.getOrDefault(channel, Set.of())) {
+            if (peer != this) {
+                peer.inbox.add(batch);
+            }
+        }
+    }
+    
+    @Override
+    public List<byte[]> poll() {
+        List<byte[]> received = new ArrayList<>();
+        for (byte[] batch; (batch = inbox.poll()) != null; ) {
+            received.add(batch);
+        }
+        return received;
+    }
+    
+    @Override
+    public void close() {
+        Set<LoopbackTransport> peers = CHANNELS.get(channel);
+        if (peers != null) {
+            peers.remove(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.chatplus.sync;
+
+import com.chatplus.state.PlayerState;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Wire format of one sync batch: the sending server's id followed by player,
+ * mute and flood records. Every record is a full snapshot, so applying one twice
+ * or out of order is harmless.
+ */
+public final class SyncBatch {
+    
+    private static final int MAGIC = 0x43505359; // "CPSY"
+    private static final int VERSION = 2;
+    private static final int MAX_SAMPLE_LENGTH = 256;
+    
+    private static final byte PLAYER = 1;
+    private static final byte MUTES = 2;
+    private static final byte FLOOD = 3;
+    
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int records;
+    
+    public SyncBatch(String serverId) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(serverId);
+    }
+    
+    public interface Visitor {
+        
+        void player(PlayerState state, long bucket);
+        
+        void mutes(boolean global, List<String> worlds, long changedAt);
+        
+        void flood(long fingerprint, long count, long expiresAt, String sample);
+    }
+    
+    public void putPlayer(PlayerState state, long bucket) throws IOException {
+        out.writeByte(PLAYER);
+        state.write(out);
+        out.writeLong(bucket);
+        records++;
+    }
+    
+    public void putMutes(boolean global, Collection<String> worlds, long changedAt) throws IOException {
+        out.writeByte(MUTES);
+        out.writeBoolean(global);
+        out.writeLong(changedAt);
+        out.writeInt(worlds.size());
+        for (String world : worlds) {
+            out.writeUTF(world);
+        }
+        records++;
+    }
+    
+    public void putFlood(long fingerprint, long count, long expiresAt, String sample) throws IOException {
+        out.writeByte(FLOOD);
+        out.writeLong(fingerprint);
+        out.writeLong(count);
+        out.writeLong(expiresAt);
+        out.writeUTF(sample.length() > MAX_SAMPLE_LENGTH ? sample.substring(0, MAX_SAMPLE_LENGTH) : sample);
+        records++;
+    }
+    
+    public boolean isEmpty() {
+        return records == 0;
+    }
+    
+    public byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+    
+    public static void read(byte[] batch, Visitor visitor) throws IOException {
+        DataInputStream in = open(batch);
+        in.readUTF();
+        
+        PlayerState state = new PlayerState();
+        while (in.available() > 0) {
+            byte type = in.readByte();
+            switch (type) {
+                case PLAYER:
+                    state.read(in);
+                    visitor.player(state, in.readLong());
+                    break;
+                case MUTES:
+                    boolean global = in.readBoolean();
+                    long changedAt = in.readLong();
+                    int count = in.readInt();
+                    List<String> worlds = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        worlds.add(in.readUTF());
+                    }
+                    visitor.mutes(global, worlds, changedAt);
+                    break;
+                case FLOOD:
+                    visitor.flood(in.readLong(), in.readLong(), in.readLong(), in.readUTF());
+                    break;
+                default:
+                    throw new IOException("Unknown sync record type " + type);
+            }
+        }
+    }
+    
+    /**
+     * Reads only the id of the server that sent a batch.
+     */
+    public static String readServerId(byte[] batch) throws IOException {
+        return open(batch).readUTF();
+    }
+    
+    private static DataInputStream open(byte[] batch) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a ChatPlus sync batch");
+        }
+        return in;
+    }
+}
\ No newline at end of file
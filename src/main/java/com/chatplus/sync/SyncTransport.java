@@ -0,0 +1,23 @@
+package com.chatplus.sync;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Moves opaque sync batches between ChatPlus servers. A transport only has to
+ * deliver batches best-effort: every batch carries full state that is merged
+ * newest-wins, so a lost batch or a lost peer just means missed updates.
+ */
+public interface SyncTransport extends Closeable {
+    
+    /**
+     * Sends a batch to every other server.
+     */
+    void publish(byte[] batch) throws IOException;
+    
+    /**
+     * Batches received from other servers since the last call, oldest first.
+     */
+    List<byte[]> poll() throws IOException;
+}
\ No newline at end of file